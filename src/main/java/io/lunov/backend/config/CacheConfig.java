@@ -0,0 +1,14 @@
+package io.lunov.backend.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// caches are Caffeine, sized and named in application.yml (spring.cache.*)
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    // public portfolio of one SessionContentType, keyed by the enum and PortfolioServiceImpl's generation
+    public static final String PORTFOLIO = "portfolio";
+    // list of public portfolio sessions
+    public static final String PORTFOLIO_ALBUMS = "portfolio-albums";
+}
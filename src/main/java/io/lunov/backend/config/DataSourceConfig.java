@@ -0,0 +1,84 @@
+package io.lunov.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.lunov.backend.util.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replicas for read-only transactions, enabled by {@code datasource.replica.urls}.
+ * Without it Boot's single data source is used unchanged. Replicas replicate
+ * asynchronously, so reads that must see a write of the same request stay out of
+ * read-only transactions.
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replica.urls:}'.isBlank()")
+public class DataSourceConfig {
+
+    @Value("${datasource.replica.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${datasource.replica.maximum-pool-size:10}")
+    private int replicaPoolSize;
+
+    // also bounds how long a health check waits for an unreachable replica
+    @Value("${datasource.replica.connection-timeout:PT2S}")
+    private Duration replicaConnectionTimeout;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                      DataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String name = "replica-" + (i + 1);
+            replicas.put(name, replicaPool(name, replicaUrls.get(i).trim(), properties.determineDriverClassName()));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaConnectionTimeout);
+    }
+
+    // the routing key is resolved on first use of the connection, after the transaction is set up
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private HikariDataSource replicaPool(String name, String url, String driverClassName) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(replicaUsername);
+        pool.setPassword(replicaPassword);
+        pool.setDriverClassName(driverClassName);
+        pool.setMaximumPoolSize(replicaPoolSize);
+        pool.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+        pool.setReadOnly(true);
+        // a replica that is down at startup must not stop the application
+        pool.setInitializationFailTimeout(-1);
+        return pool;
+    }
+}
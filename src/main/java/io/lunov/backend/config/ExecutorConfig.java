@@ -0,0 +1,37 @@
+package io.lunov.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${preview.threads:0}")
+    private int previewThreads;
+
+    @Value("${photo.upload.concurrency:16}")
+    private int uploadConcurrency;
+
+    // blocking MinIO calls; callers bound their own concurrency
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService storageExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // bulk photo uploads; the pool size is the per-node cap of concurrent uploads
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor() {
+        return Executors.newFixedThreadPool(uploadConcurrency, Thread.ofVirtual().name("upload-", 0).factory());
+    }
+
+    // CPU-bound image decoding and encoding
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageExecutor() {
+        int threads = previewThreads > 0 ? previewThreads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,29 @@
+package io.lunov.backend.config;
+
+import io.lunov.backend.util.cache.BroadcastingRegionFactory;
+import io.lunov.backend.util.cache.CacheInvalidationBroadcaster;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// the region factory is handed to Hibernate as an instance, so it can reach the broker
+@Configuration
+public class HibernateCacheConfig {
+
+    @Bean
+    public BroadcastingRegionFactory regionFactory(
+            CacheInvalidationBroadcaster broadcaster,
+            @Value("${second-level-cache.max-entries-per-region:10000}") long maxEntries,
+            @Value("${second-level-cache.time-to-live:PT10M}") Duration timeToLive) {
+        return new BroadcastingRegionFactory(broadcaster, maxEntries, timeToLive);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer regionFactoryCustomizer(BroadcastingRegionFactory regionFactory) {
+        return properties -> properties.put(AvailableSettings.CACHE_REGION_FACTORY, regionFactory);
+    }
+}
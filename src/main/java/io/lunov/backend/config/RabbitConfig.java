@@ -1,7 +1,126 @@
 package io.lunov.backend.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class RabbitConfig {
+
+    public static final String PREVIEW_EXCHANGE = "photo.preview";
+    public static final String PREVIEW_QUEUE = "photo.preview.requests";
+    public static final String PREVIEW_DEAD_LETTER_EXCHANGE = "photo.preview.dlx";
+    public static final String PREVIEW_DEAD_LETTER_QUEUE = "photo.preview.requests.dlq";
+    public static final String PREVIEW_ROUTING_KEY = "preview";
+    public static final String CACHE_INVALIDATION_EXCHANGE = "hibernate.cache.invalidation";
+
+    @Value("${preview.worker.concurrency:2}")
+    private int concurrency;
+
+    @Value("${preview.worker.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${preview.worker.prefetch:1}")
+    private int prefetch;
+
+    @Value("${preview.worker.retry.max-attempts:4}")
+    private int retryMaxAttempts;
+
+    @Value("${preview.worker.retry.initial-interval:PT1S}")
+    private Duration retryInitialInterval;
+
+    @Value("${preview.worker.retry.multiplier:2.0}")
+    private double retryMultiplier;
+
+    @Value("${preview.worker.retry.max-interval:PT10S}")
+    private Duration retryMaxInterval;
+
+    @Bean
+    public MessageConverter jsonMessageConverter(ObjectMapper objectMapper) {
+        return new Jackson2JsonMessageConverter(objectMapper);
+    }
+
+    @Bean
+    public DirectExchange previewExchange() {
+        return new DirectExchange(PREVIEW_EXCHANGE);
+    }
+
+    @Bean
+    public DirectExchange previewDeadLetterExchange() {
+        return new DirectExchange(PREVIEW_DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    public Queue previewQueue() {
+        return QueueBuilder.durable(PREVIEW_QUEUE)
+                .deadLetterExchange(PREVIEW_DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(PREVIEW_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Queue previewDeadLetterQueue() {
+        return QueueBuilder.durable(PREVIEW_DEAD_LETTER_QUEUE).build();
+    }
+
+    @Bean
+    public Binding previewBinding() {
+        return BindingBuilder.bind(previewQueue()).to(previewExchange()).with(PREVIEW_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding previewDeadLetterBinding() {
+        return BindingBuilder.bind(previewDeadLetterQueue()).to(previewDeadLetterExchange()).with(PREVIEW_ROUTING_KEY);
+    }
+
+    @Bean
+    public FanoutExchange cacheInvalidationExchange() {
+        return new FanoutExchange(CACHE_INVALIDATION_EXCHANGE);
+    }
+
+    // one exclusive, auto-deleted queue per instance; evictions are only useful to instances running now
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cacheInvalidationBinding() {
+        return BindingBuilder.bind(cacheInvalidationQueue()).to(cacheInvalidationExchange());
+    }
+
+    // a failed message is acknowledged negatively without requeue, so it lands in the dead-letter queue.
+    // Transient failures are first retried on the consumer thread with backoff; a rejection is final at once
+    @Bean
+    public SimpleRabbitListenerContainerFactory previewListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                               MessageConverter jsonMessageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+        factory.setPrefetchCount(prefetch);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setDefaultRequeueRejected(false);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .retryPolicy(new SimpleRetryPolicy(retryMaxAttempts,
+                        Map.of(AmqpRejectAndDontRequeueException.class, false), true, true))
+                .backOffOptions(retryInitialInterval.toMillis(), retryMultiplier, retryMaxInterval.toMillis())
+                .recoverer(new RejectAndDontRequeueRecoverer())
+                .build());
+        return factory;
+    }
 }
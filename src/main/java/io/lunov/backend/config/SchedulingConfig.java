@@ -0,0 +1,11 @@
+package io.lunov.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// background refreshes: bucket registry, replica health checks, preview cache cleanup, preview re-sends,
+// expired chunked uploads, retained buckets
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
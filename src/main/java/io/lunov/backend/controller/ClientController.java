@@ -2,6 +2,7 @@ package io.lunov.backend.controller;
 
 import io.lunov.backend.model.dto.client.ClientDTO;
 import io.lunov.backend.model.dto.client.ClientInfoDTO;
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.service.ClientService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +27,22 @@ public class ClientController {
         return service.findAll();
     }
 
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPageDTO<ClientInfoDTO> findPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return service.findPage(cursor, size);
+    }
+
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ClientInfoDTO> searchFuzzy(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Integer size) {
+        return service.searchFuzzy(query, size);
+    }
+
     @GetMapping("/find")
     @ResponseStatus(HttpStatus.OK)
     public ClientInfoDTO findByName(@Valid @RequestParam String name) {
@@ -1,13 +1,27 @@
 package io.lunov.backend.controller;
 
+import io.lunov.backend.model.dto.page.CursorPageDTO;
+import io.lunov.backend.model.dto.photo.BulkDeleteResultDTO;
+import io.lunov.backend.model.dto.photo.PhotoBulkDeleteDTO;
 import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.service.PhotoBulkDeleteService;
 import io.lunov.backend.service.PhotoService;
+import io.lunov.backend.service.PreviewDeliveryService;
+import io.lunov.backend.service.SessionService;
+import io.lunov.backend.util.http.ETags;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,10 +33,13 @@ import static org.springframework.http.HttpStatus.*;
 public class PhotoController {
 
     private final PhotoService service;
+    private final PhotoBulkDeleteService bulkDeleteService;
+    private final SessionService sessionService;
+    private final PreviewDeliveryService previewDeliveryService;
 
     @PostMapping(value = "/{sessionId}/add", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseStatus(CREATED)
-    public List<PhotoInfoDTO> addPhotos(
+    public List<PhotoUploadResultDTO> addPhotos(
             @PathVariable UUID sessionId,
             @RequestParam("files") List<MultipartFile> files) {
 
@@ -46,10 +63,32 @@ public class PhotoController {
         return service.addPhotoToPortfolio(contentType, UUID.fromString(photoId));
     }
 
+    // the version is read first: a change racing the list load only costs the next client a full response
     @GetMapping("/{sessionId}")
+    public ResponseEntity<List<PhotoInfoDTO>> findAllBySessionId(@PathVariable UUID sessionId, WebRequest request) {
+        String etag = ETags.of(ETags.SESSION_PHOTOS, sessionId,
+                sessionService.findVersion(sessionId).getContentVersion());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.findAllBySessionId(sessionId));
+    }
+
+    // image tags cannot send headers, so previews of private sessions take the access code as a parameter
+    @GetMapping("/{photoId}/preview")
+    public void findPreview(@PathVariable UUID photoId,
+                            @RequestParam(name = "code", required = false) String accessCode,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        previewDeliveryService.servePreview(photoId, accessCode, request, response);
+    }
+
+    @GetMapping("/{sessionId}/page")
     @ResponseStatus(OK)
-    public List<PhotoInfoDTO> findAllBySessionId(@PathVariable UUID sessionId) {
-        return service.findAllBySessionId(sessionId);
+    public CursorPageDTO<PhotoInfoDTO> findPageBySessionId(
+            @PathVariable UUID sessionId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return service.findPageBySessionId(sessionId, cursor, size);
     }
 
     @DeleteMapping("/{sessionId}/photos/{photoId}")
@@ -58,4 +97,10 @@ public class PhotoController {
         service.delete(sessionId, photoId, fileName);
     }
 
+    @DeleteMapping("/{sessionId}/photos")
+    @ResponseStatus(OK)
+    public BulkDeleteResultDTO deletePhotos(@PathVariable UUID sessionId, @RequestBody @Valid PhotoBulkDeleteDTO payload) {
+        return bulkDeleteService.deletePhotos(sessionId, payload.getPhotoIds());
+    }
+
 }
@@ -0,0 +1,32 @@
+package io.lunov.backend.controller;
+
+import io.lunov.backend.model.dto.portfolio.PortfolioDTO;
+import io.lunov.backend.model.dto.session.SessionInfoDTO;
+import io.lunov.backend.model.entity.SessionContentType;
+import io.lunov.backend.service.PortfolioService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping("/api/v1/portfolio")
+@RequiredArgsConstructor
+public class PortfolioController {
+
+    private final PortfolioService service;
+
+    @GetMapping
+    @ResponseStatus(OK)
+    public List<SessionInfoDTO> findAlbums() {
+        return service.findAlbums();
+    }
+
+    @GetMapping("/{contentType}")
+    @ResponseStatus(OK)
+    public PortfolioDTO findByContentType(@PathVariable String contentType) {
+        return service.findByContentType(SessionContentType.valueOf(contentType.toUpperCase()));
+    }
+}
@@ -1,16 +1,19 @@
 package io.lunov.backend.controller;
 
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.model.dto.session.*;
 import io.lunov.backend.service.SessionService;
+import io.lunov.backend.util.http.ETags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -32,10 +35,33 @@ public class SessionController {
         return service.findAll();
     }
 
-    @GetMapping("/{id}")
+    @GetMapping("/page")
+    @ResponseStatus(OK)
+    public CursorPageDTO<SessionInfoDTO> findPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return service.findPage(cursor, size);
+    }
+
+    @GetMapping("/summary")
     @ResponseStatus(OK)
-    public SessionInfoDTO findById(@PathVariable UUID id) {
-        return service.findById(id);
+    public CursorPageDTO<SessionSummaryDTO> findSummaryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return service.findSummaryPage(cursor, size);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SessionInfoDTO> findById(@PathVariable UUID id, WebRequest request) {
+        SessionVersionDTO version = service.findVersion(id);
+        if (request.checkNotModified(ETags.of(ETags.SESSION, id, version.getContentVersion()))) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+
+        SessionInfoDTO session = service.findById(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(ETags.SESSION, id, session.getContentVersion()))
+                .body(session);
     }
 
     @PostMapping("/search")
@@ -46,6 +72,14 @@ public class SessionController {
         return service.findByFilters(sessionInfoSearchDTO);
     }
 
+    @GetMapping("/search/fuzzy")
+    @ResponseStatus(OK)
+    public List<SessionInfoDTO> searchFuzzy(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Integer size) {
+        return service.searchFuzzy(query, size);
+    }
+
     @GetMapping("/search/client/{id}")
     @ResponseStatus(OK)
     public List<SessionInfoDTO> findAllByClientId(@PathVariable UUID id) {
@@ -59,9 +93,11 @@ public class SessionController {
     }
 
     @PatchMapping("/{id}")
-    @ResponseStatus(OK)
-    public SessionInfoDTO update(@PathVariable UUID id, @RequestBody @Valid SessionUpdateDTO payload) {
-        return service.update(id, payload);
+    public ResponseEntity<SessionInfoDTO> update(@PathVariable UUID id, @RequestBody @Valid SessionUpdateDTO payload) {
+        SessionInfoDTO session = service.update(id, payload);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(ETags.SESSION, id, session.getContentVersion()))
+                .body(session);
     }
 
     @DeleteMapping("/{id}")
@@ -72,10 +108,9 @@ public class SessionController {
 
     @GetMapping("/{id}/download")
     @ResponseStatus(OK)
-    public ResponseEntity<Resource> download(@PathVariable UUID id) {
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable UUID id) {
         try {
             var result = service.downloadSessionAsZip(id);
-            var resource = result.getSessionZip().orElseThrow();
 
             String filename = result.getFileName() + ".zip";
             String encoded = URLEncoder.encode(filename, StandardCharsets.UTF_8)
@@ -85,8 +120,7 @@ public class SessionController {
                     .header(HttpHeaders.CONTENT_DISPOSITION,
                             "attachment; filename=\"download.zip\"; filename*=UTF-8''" + encoded)
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(resource.contentLength())
-                    .body(resource);
+                    .body(result.getSessionZip());
 
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -94,9 +128,22 @@ public class SessionController {
     }
 
     @PostMapping("/find")
-    @ResponseStatus(OK)
-    public SessionInfoDTO findClientSession(@Valid @RequestBody SessionDownloadDTO payload) {
-        return service.findByAccessCodeAndClientEmail(payload);
+    public ResponseEntity<SessionInfoDTO> findClientSession(
+            @Valid @RequestBody SessionDownloadDTO payload,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // without a tag to compare the version lookup would only add a query to the login
+        if (ifNoneMatch != null) {
+            SessionVersionDTO version = service.findVersion(payload);
+            String etag = ETags.of(ETags.SESSION, version.getId(), version.getContentVersion());
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        SessionInfoDTO session = service.findByAccessCodeAndClientEmail(payload);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(ETags.SESSION, session.getId(), session.getContentVersion()))
+                .body(session);
     }
 
 }
@@ -0,0 +1,83 @@
+package io.lunov.backend.controller;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.model.dto.upload.ChunkedUploadCreateDTO;
+import io.lunov.backend.model.dto.upload.ChunkedUploadDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadCompleteDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadRequestDTO;
+import io.lunov.backend.service.ChunkedUploadService;
+import io.lunov.backend.service.PresignedUploadService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.http.HttpStatus.*;
+
+/**
+ * Resumable uploads for large originals: the client creates an upload, sends
+ * fixed size chunks in any order (re-sending any that failed), and completes it.
+ * After a disconnect {@code GET /{uploadId}} reports which chunks are stored.
+ * Alternatively clients PUT whole files to presigned storage URLs and report them
+ * through {@code /{sessionId}/presigned/complete}.
+ */
+@RestController
+@RequestMapping("/api/v1/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+
+    private final ChunkedUploadService service;
+    private final PresignedUploadService presignedUploadService;
+
+    @PostMapping("/{sessionId}")
+    @ResponseStatus(CREATED)
+    public ChunkedUploadDTO create(@PathVariable UUID sessionId, @RequestBody @Valid ChunkedUploadCreateDTO dto) {
+        return service.create(sessionId, dto);
+    }
+
+    @GetMapping("/{uploadId}")
+    @ResponseStatus(OK)
+    public ChunkedUploadDTO findById(@PathVariable UUID uploadId) {
+        return service.findById(uploadId);
+    }
+
+    @PutMapping(value = "/{uploadId}/chunks/{chunkNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @ResponseStatus(OK)
+    public ChunkedUploadDTO uploadChunk(@PathVariable UUID uploadId, @PathVariable int chunkNumber, InputStream body) {
+        return service.uploadChunk(uploadId, chunkNumber, body);
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    @ResponseStatus(CREATED)
+    public PhotoInfoDTO complete(@PathVariable UUID uploadId) {
+        return service.complete(uploadId);
+    }
+
+    @PostMapping("/{sessionId}/presigned")
+    @ResponseStatus(CREATED)
+    public List<PresignedUploadDTO> createPresignedUploads(
+            @PathVariable UUID sessionId,
+            @RequestBody @Valid PresignedUploadRequestDTO dto) {
+        return presignedUploadService.createUploads(sessionId, dto);
+    }
+
+    @PostMapping("/{sessionId}/presigned/complete")
+    @ResponseStatus(CREATED)
+    public List<PhotoUploadResultDTO> completePresignedUploads(
+            @PathVariable UUID sessionId,
+            @RequestBody @Valid PresignedUploadCompleteDTO dto) {
+        return presignedUploadService.complete(sessionId, dto);
+    }
+
+    @DeleteMapping("/{uploadId}")
+    @ResponseStatus(NO_CONTENT)
+    public void abort(@PathVariable UUID uploadId) {
+        service.abort(uploadId);
+    }
+}
@@ -2,7 +2,6 @@ package io.lunov.backend.controller.advice;
 
 import io.lunov.backend.model.dto.error.ErrorResponseDTO;
 import io.lunov.backend.model.dto.error.PhotoNotFoundException;
-import io.lunov.backend.model.exception.ClientNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -15,7 +14,7 @@ public class PhotoControllerAdvice {
 
     @ExceptionHandler(PhotoNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ErrorResponseDTO handleException(ClientNotFoundException e) {
+    public ErrorResponseDTO handleException(PhotoNotFoundException e) {
         return ErrorResponseDTO.builder()
                 .message(e.getMessage())
                 .error("Photo not found")
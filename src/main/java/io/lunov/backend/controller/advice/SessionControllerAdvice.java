@@ -0,0 +1,27 @@
+package io.lunov.backend.controller.advice;
+
+import io.lunov.backend.model.dto.error.ErrorResponseDTO;
+import io.lunov.backend.model.exception.TooManyLoginAttemptsException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.Instant;
+
+@RestControllerAdvice
+public class SessionControllerAdvice {
+
+    @ExceptionHandler(TooManyLoginAttemptsException.class)
+    public ResponseEntity<ErrorResponseDTO> handleException(TooManyLoginAttemptsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(ErrorResponseDTO.builder()
+                        .message(e.getMessage())
+                        .error("Too many login attempts")
+                        .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                        .timestamp(Instant.now())
+                        .build());
+    }
+}
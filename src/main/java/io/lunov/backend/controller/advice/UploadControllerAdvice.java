@@ -0,0 +1,25 @@
+package io.lunov.backend.controller.advice;
+
+import io.lunov.backend.model.dto.error.ErrorResponseDTO;
+import io.lunov.backend.model.exception.UploadNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.Instant;
+
+@RestControllerAdvice
+public class UploadControllerAdvice {
+
+    @ExceptionHandler(UploadNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponseDTO handleException(UploadNotFoundException e) {
+        return ErrorResponseDTO.builder()
+                .message(e.getMessage())
+                .error("Upload not found")
+                .status(HttpStatus.NOT_FOUND.value())
+                .timestamp(Instant.now())
+                .build();
+    }
+}
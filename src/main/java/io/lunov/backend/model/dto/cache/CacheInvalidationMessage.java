@@ -0,0 +1,25 @@
+package io.lunov.backend.model.dto.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// the evictions of one committed transaction
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheInvalidationMessage {
+    // the sending instance, which has already evicted locally
+    private String node;
+    // evicted keys by region
+    private Map<String, List<UUID>> keys;
+    // regions cleared as a whole
+    private Set<String> regions;
+}
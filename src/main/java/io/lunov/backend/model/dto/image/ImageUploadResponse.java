@@ -3,12 +3,19 @@ package io.lunov.backend.model.dto.image;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @Builder
 public class ImageUploadResponse {
     String originalFileName;
     String previewFileName;
     String originalUrl;
+    Long originalSize;
     String previewUrl;
+    List<RenditionDTO> renditions;
+    // hex SHA-256 of the original, computed while it was streamed to storage
+    String contentHash;
     boolean isSuccess;
+    String error;
 }
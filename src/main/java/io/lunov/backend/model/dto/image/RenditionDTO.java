@@ -0,0 +1,12 @@
+package io.lunov.backend.model.dto.image;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RenditionDTO {
+    int width;
+    String fileName;
+    String url;
+}
@@ -0,0 +1,16 @@
+package io.lunov.backend.model.dto.page;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class CursorPageDTO<T> {
+    private List<T> items;
+    // opaque token for the following page, null on the last page
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+}
@@ -0,0 +1,13 @@
+package io.lunov.backend.model.dto.photo;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BulkDeleteResultDTO {
+    // photos other sessions still list, only removed from this one; deleted photos are not counted again
+    private int unlinked;
+    // photos no other session referenced, removed together with their objects
+    private int deleted;
+}
@@ -0,0 +1,21 @@
+package io.lunov.backend.model.dto.photo;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PhotoBulkDeleteDTO {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<UUID> photoIds;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Builder
@@ -15,6 +16,9 @@ public class PhotoInfoDTO {
     private List<UUID> sessionIds;
     private String originalUrl;
     private String previewUrl;
+    private Map<Integer, String> renditions;
+    private String status;
     private String filename;
+    private Long sizeBytes;
     private Instant createdAt;
 }
@@ -3,6 +3,7 @@ package io.lunov.backend.model.dto.photo;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -11,4 +12,6 @@ public class PhotoShortInfoDTO {
     private UUID id;
     private String originalUrl;
     private String previewUrl;
+    private Map<Integer, String> renditions;
+    private String status;
 }
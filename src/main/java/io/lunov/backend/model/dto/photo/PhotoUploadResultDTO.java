@@ -0,0 +1,15 @@
+package io.lunov.backend.model.dto.photo;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PhotoUploadResultDTO {
+    private String originalFilename;
+    private boolean success;
+    private String error;
+    // an identical original was already stored, so the existing photo was reused
+    private boolean deduplicated;
+    private PhotoInfoDTO photo;
+}
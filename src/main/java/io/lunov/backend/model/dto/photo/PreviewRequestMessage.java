@@ -0,0 +1,18 @@
+package io.lunov.backend.model.dto.photo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PreviewRequestMessage {
+    private UUID photoId;
+    private String bucketName;
+    private String fileName;
+}
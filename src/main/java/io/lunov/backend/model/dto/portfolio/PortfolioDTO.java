@@ -0,0 +1,18 @@
+package io.lunov.backend.model.dto.portfolio;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class PortfolioDTO {
+    // null while no photo has been added to this portfolio yet
+    private UUID sessionId;
+    private String name;
+    private String contentType;
+    private List<PhotoInfoDTO> photos;
+}
@@ -24,5 +24,6 @@ public class SessionInfoDTO {
     private String contentType;
     private Instant sessionDate;
     private Instant createdAt;
+    private long contentVersion;
 }
 
@@ -0,0 +1,39 @@
+package io.lunov.backend.model.dto.session;
+
+import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.model.entity.SessionContentType;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// session card data, read by a single aggregate query without loading photos
+@Data
+public class SessionSummaryDTO {
+    private UUID id;
+    private String name;
+    private UUID clientId;
+    private String accessType;
+    private String contentType;
+    private Instant sessionDate;
+    private Instant createdAt;
+    private long photoCount;
+    private long totalBytes;
+    private String coverUrl;
+
+    // JPQL constructor expression target, see SessionRepository
+    public SessionSummaryDTO(UUID id, String name, UUID clientId, SessionAccessType accessType,
+                             SessionContentType contentType, Instant sessionDate, Instant createdAt,
+                             Long photoCount, Long totalBytes, String coverUrl) {
+        this.id = id;
+        this.name = name;
+        this.clientId = clientId;
+        this.accessType = accessType != null ? accessType.name() : null;
+        this.contentType = contentType != null ? contentType.name() : null;
+        this.sessionDate = sessionDate;
+        this.createdAt = createdAt;
+        this.photoCount = photoCount != null ? photoCount : 0;
+        this.totalBytes = totalBytes != null ? totalBytes : 0;
+        this.coverUrl = coverUrl;
+    }
+}
@@ -0,0 +1,14 @@
+package io.lunov.backend.model.dto.session;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// what a conditional GET needs to answer 304 without loading the session's photos
+@Data
+@AllArgsConstructor
+public class SessionVersionDTO {
+    private UUID id;
+    private long contentVersion;
+}
@@ -2,14 +2,11 @@ package io.lunov.backend.model.dto.session;
 
 import lombok.Builder;
 import lombok.Data;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.InputStreamResource;
-
-import java.util.Optional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Data
 @Builder
 public class SessionZipDTO {
-    Optional<ByteArrayResource> sessionZip;
+    StreamingResponseBody sessionZip;
     String fileName;
 }
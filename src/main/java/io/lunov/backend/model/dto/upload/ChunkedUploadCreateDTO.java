@@ -0,0 +1,19 @@
+package io.lunov.backend.model.dto.upload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkedUploadCreateDTO {
+    @NotBlank
+    private String originalFilename;
+    @Positive
+    private long totalSize;
+}
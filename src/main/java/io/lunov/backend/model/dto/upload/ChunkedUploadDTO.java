@@ -0,0 +1,22 @@
+package io.lunov.backend.model.dto.upload;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ChunkedUploadDTO {
+    private UUID id;
+    private UUID sessionId;
+    private String originalFilename;
+    private long totalSize;
+    private long chunkSize;
+    private int totalChunks;
+    // chunk numbers already stored; a resuming client sends only the missing ones
+    private List<Integer> receivedChunks;
+    private long receivedBytes;
+    private String status;
+}
@@ -0,0 +1,20 @@
+package io.lunov.backend.model.dto.upload;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresignedUploadCompleteDTO {
+    @NotEmpty
+    @Size(max = 50)
+    private List<String> fileNames;
+}
@@ -0,0 +1,16 @@
+package io.lunov.backend.model.dto.upload;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class PresignedUploadDTO {
+    private String originalFilename;
+    // name to send back to the completion endpoint once the PUT succeeded
+    private String fileName;
+    private String uploadUrl;
+    private Instant expiresAt;
+}
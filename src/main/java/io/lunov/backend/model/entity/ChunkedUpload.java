@@ -0,0 +1,43 @@
+package io.lunov.backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "chunked_uploads")
+public class ChunkedUpload {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+    @Column(name = "session_id", nullable = false)
+    private UUID sessionId;
+    private String fileName;
+    private String originalFilename;
+    // id of the S3 multipart upload the chunks are sent to
+    private String storageUploadId;
+    private long totalSize;
+    private long chunkSize;
+    @Enumerated(EnumType.STRING)
+    private ChunkedUploadStatus status;
+    @CreationTimestamp
+    private Instant createdAt;
+    // an upload left in one status for longer than upload.expire-after is cleaned up
+    private Instant statusChangedAt;
+
+    public int getTotalChunks() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    public long expectedChunkSize(int chunkNumber) {
+        return chunkNumber < getTotalChunks() ? chunkSize : totalSize - (getTotalChunks() - 1) * chunkSize;
+    }
+}
@@ -0,0 +1,31 @@
+package io.lunov.backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+// one row per acknowledged chunk, so chunks of the same upload can be stored concurrently
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "chunked_upload_parts",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_chunked_upload_part", columnNames = {"upload_id", "part_number"}),
+        }
+)
+public class ChunkedUploadPart {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+    @Column(name = "upload_id", nullable = false)
+    private UUID uploadId;
+    @Column(name = "part_number", nullable = false)
+    private int partNumber;
+    private String etag;
+    private long size;
+}
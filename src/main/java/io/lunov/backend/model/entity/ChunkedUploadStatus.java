@@ -0,0 +1,11 @@
+package io.lunov.backend.model.entity;
+
+public enum ChunkedUploadStatus {
+    ACTIVE,
+    // claimed by the request assembling the parts
+    COMPLETING,
+    // parts assembled into the original in storage, photo not registered yet; completion can be retried
+    STORED,
+    COMPLETED,
+    ABORTED
+}
@@ -2,6 +2,8 @@ package io.lunov.backend.model.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
@@ -15,12 +17,15 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(
         name = "clients",
         indexes = {
                 @Index(name = "idx_name", columnList = "name"),
                 @Index(name = "idx_email", columnList = "email"),
-                @Index(name = "idx_phone_number", columnList = "phoneNumber")
+                @Index(name = "idx_phone_number", columnList = "phoneNumber"),
+                @Index(name = "idx_client_created_at_id", columnList = "created_at, id")
         }
 )
 public class Client {
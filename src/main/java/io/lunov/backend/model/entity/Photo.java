@@ -2,6 +2,8 @@ package io.lunov.backend.model.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
@@ -15,11 +17,17 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(
         name = "photos",
         indexes = {
-                @Index(name = "idx_filename", columnList = "filename"),
-        }
+                @Index(name = "idx_photo_content_hash", columnList = "content_hash"),
+                @Index(name = "idx_photo_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_photo_primary_session_id", columnList = "primary_session_id"),
+        },
+        // one photo per stored original; also serves lookups by bucket
+        uniqueConstraints = @UniqueConstraint(name = "uk_photo_bucket_filename", columnNames = {"bucket", "filename"})
 )
 public class Photo {
     @Id
@@ -28,12 +36,42 @@ public class Photo {
     private String originalUrl;
     private String previewUrl;
     private String filename;
+    // exact storage address of the original; renditions carry their own object names
+    @Column(length = 63)
+    private String bucket;
+    @Column(name = "object_name")
+    private String objectName;
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+    @Enumerated(EnumType.STRING)
+    private PhotoStatus status;
+    @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+    @CollectionTable(name = "photo_renditions", joinColumns = @JoinColumn(name = "photo_id"))
+    @OrderBy("width")
+    @Builder.Default
+    private List<PhotoRendition> renditions = new ArrayList<>();
     @ManyToMany(mappedBy = "photos")
     @Builder.Default
     private List<Session> sessions = new ArrayList<>();
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "primary_session_id")
     private Session primarySession;
     @CreationTimestamp
     private Instant createdAt;
+    // last preview request sent again by PreviewServiceImpl; null while only the upload's request went out
+    @Column(name = "preview_requested_at")
+    private Instant previewRequestedAt;
+
+    public List<String> objectNames() {
+        List<String> names = new ArrayList<>();
+        if (objectName != null) {
+            names.add(objectName);
+        }
+        renditions.forEach(rendition -> names.add(rendition.getObjectName()));
+        // renditions of small sources share one object
+        return names.stream().distinct().toList();
+    }
 }
@@ -0,0 +1,18 @@
+package io.lunov.backend.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class PhotoRendition {
+    private int width;
+    @Column(name = "object_name")
+    private String objectName;
+    private String url;
+}
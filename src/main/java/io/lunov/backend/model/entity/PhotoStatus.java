@@ -0,0 +1,7 @@
+package io.lunov.backend.model.entity;
+
+public enum PhotoStatus {
+    PROCESSING,
+    READY,
+    FAILED
+}
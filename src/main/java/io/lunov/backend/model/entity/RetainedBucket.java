@@ -0,0 +1,24 @@
+package io.lunov.backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// bucket of a deleted session kept for photos other sessions still share, or left by a failed delete;
+// dropped once no photo is stored in it
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "retained_buckets")
+public class RetainedBucket {
+    @Id
+    @Column(length = 63)
+    private String name;
+    @CreationTimestamp
+    private Instant retainedAt;
+}
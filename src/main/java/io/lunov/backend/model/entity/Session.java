@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.PastOrPresent;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
@@ -18,10 +20,14 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(
         name = "sessions",
         indexes = {
                 @Index(name = "idx_session_name", columnList = "name"),
+                @Index(name = "idx_session_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_session_client_id", columnList = "client_id"),
         }
 )
 public class Session {
@@ -31,6 +37,7 @@ public class Session {
     private UUID id;
     private String name;
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @JoinTable(
             name = "sessions_photos",
             joinColumns = @JoinColumn(name = "session_id"),
@@ -41,12 +48,18 @@ public class Session {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id")
     private Client client;
+    // goes up whenever the session or its photos change and backs the ETags of its read endpoints;
+    // written only by SessionRepository.incrementContentVersion so entity saves never reset it
+    @Column(name = "content_version", nullable = false, updatable = false)
+    @Builder.Default
+    private long contentVersion = 0;
     @Enumerated(EnumType.STRING)
     @Column(name = "access_type")
     private SessionAccessType accessType;
     @Enumerated(EnumType.STRING)
     @Column(name = "content_type")
     private SessionContentType contentType;
+    // the unique constraint's index is what the client login finds sessions by
     @Column(name = "access_code", unique = true, length = 20)
     @AccessCode
     @Valid
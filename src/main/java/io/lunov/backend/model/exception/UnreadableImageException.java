@@ -0,0 +1,14 @@
+package io.lunov.backend.model.exception;
+
+import java.io.IOException;
+
+// the bytes were read but are no image a decoder understands; reading them again gives the same result
+public class UnreadableImageException extends IOException {
+    public UnreadableImageException(String message) {
+        super(message);
+    }
+
+    public UnreadableImageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package io.lunov.backend.model.exception;
+
+public class UploadNotFoundException extends RuntimeException {
+    public UploadNotFoundException(String message) {
+        super(message);
+    }
+}
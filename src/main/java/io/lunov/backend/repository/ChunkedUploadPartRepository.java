@@ -0,0 +1,35 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.ChunkedUploadPart;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ChunkedUploadPartRepository extends JpaRepository<ChunkedUploadPart, UUID> {
+    List<ChunkedUploadPart> findByUploadIdOrderByPartNumber(UUID uploadId);
+
+    // a re-sent chunk replaces the earlier copy of the same part, also when both copies arrive at once
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "chunked_upload_parts"))
+    @Query(value = """
+            INSERT INTO chunked_upload_parts (id, upload_id, part_number, etag, size)
+            VALUES (gen_random_uuid(), :uploadId, :partNumber, :etag, :size)
+            ON CONFLICT (upload_id, part_number) DO UPDATE SET etag = EXCLUDED.etag, size = EXCLUDED.size
+            """, nativeQuery = true)
+    int upsert(UUID uploadId, int partNumber, String etag, long size);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChunkedUploadPart p WHERE p.uploadId = :uploadId")
+    void deleteByUploadId(UUID uploadId);
+}
@@ -0,0 +1,33 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.ChunkedUpload;
+import io.lunov.backend.model.entity.ChunkedUploadStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ChunkedUploadRepository extends JpaRepository<ChunkedUpload, UUID> {
+
+    // moves the upload on only from the expected status; 0 when a concurrent request got there first
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE ChunkedUpload u SET u.status = :to, u.statusChangedAt = :changedAt
+            WHERE u.id = :id AND u.status = :from
+            """)
+    int updateStatus(UUID id, ChunkedUploadStatus from, ChunkedUploadStatus to, Instant changedAt);
+
+    default int updateStatus(UUID id, ChunkedUploadStatus from, ChunkedUploadStatus to) {
+        return updateStatus(id, from, to, Instant.now());
+    }
+
+    List<ChunkedUpload> findByStatusChangedAtBefore(Instant changedBefore, Limit limit);
+}
@@ -1,17 +1,46 @@
 package io.lunov.backend.repository;
 
 import io.lunov.backend.model.entity.Client;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ClientRepository extends JpaRepository<Client, UUID> {
+    @Override
+    @EntityGraph(attributePaths = "sessions")
+    List<Client> findAll();
+
     Optional<Client> findByEmail(String email);
     Optional<Client> findByPhoneNumber(String phoneNumber);
     boolean existsByEmail(String email);
 
     Optional<Client> findByName(String name);
+
+    // fuzzy match on name or email, best match first; uses the trigram indexes from import.sql
+    @Query(value = """
+            SELECT c.* FROM clients c
+            WHERE lower(c.name) % :query OR lower(c.email) % :query
+            ORDER BY GREATEST(similarity(lower(c.name), :query), similarity(lower(c.email), :query)) DESC, c.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Client> searchFuzzy(String query, int limit);
+
+    // keyset pages, newest first; served by idx_client_created_at_id
+    @Query("SELECT c FROM Client c ORDER BY c.createdAt DESC, c.id DESC")
+    List<Client> findFirstPage(Limit limit);
+
+    @Query("""
+            SELECT c FROM Client c
+            WHERE c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)
+            ORDER BY c.createdAt DESC, c.id DESC
+            """)
+    List<Client> findPageAfter(Instant createdAt, UUID id, Limit limit);
 }
@@ -0,0 +1,129 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoRendition;
+import io.lunov.backend.model.entity.Session;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bulk insert path for photo ingest. Photos, their sessions_photos links and their
+ * renditions are written as three JDBC batches instead of one entity flush per row;
+ * links of already stored photos reused by the ingest go into the same link batch, so
+ * the session's mapped photo collection is never touched and never rewritten on flush;
+ * with reWriteBatchedInserts the driver turns each batch into multi-row INSERTs.
+ * The written photos are not managed by the persistence context, and the second-level
+ * cache of the session's photo list is evicted by hand.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PhotoBatchRepository {
+
+    private static final String INSERT_PHOTO = """
+            INSERT INTO photos (id, filename, bucket, object_name, original_url, preview_url, content_hash, size_bytes,
+                                status, primary_session_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_SESSION_PHOTO = "INSERT INTO sessions_photos (session_id, photo_id) VALUES (?, ?)";
+    // a reused photo may already be in the session; the join table has no key to conflict on
+    private static final String LINK_SESSION_PHOTO = """
+            INSERT INTO sessions_photos (session_id, photo_id)
+            SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM sessions_photos WHERE session_id = ? AND photo_id = ?)
+            """;
+    private static final String INSERT_RENDITION =
+            "INSERT INTO photo_renditions (photo_id, width, object_name, url) VALUES (?, ?, ?, ?)";
+
+    private static final String SESSION_PHOTOS = Session.class.getName() + ".photos";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${photo.ingest.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Inserts new photos and links them, together with the already stored {@code reused}
+     * photos, to the session. Ids and creation times are assigned here when missing, so
+     * the given instances can be mapped afterwards.
+     */
+    public void insert(UUID sessionId, List<Photo> photos, Collection<UUID> reused) {
+        if (photos.isEmpty() && reused.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        photos.forEach(photo -> {
+            if (photo.getId() == null) {
+                photo.setId(UUID.randomUUID());
+            }
+            if (photo.getCreatedAt() == null) {
+                photo.setCreatedAt(now);
+            }
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_PHOTO, photos, batchSize, (ps, photo) -> {
+            ps.setObject(1, photo.getId());
+            ps.setString(2, photo.getFilename());
+            ps.setString(3, photo.getBucket());
+            ps.setString(4, photo.getObjectName());
+            ps.setString(5, photo.getOriginalUrl());
+            ps.setString(6, photo.getPreviewUrl());
+            ps.setString(7, photo.getContentHash());
+            ps.setObject(8, photo.getSizeBytes(), Types.BIGINT);
+            ps.setString(9, photo.getStatus() != null ? photo.getStatus().name() : null);
+            ps.setObject(10, photo.getPrimarySession() != null ? photo.getPrimarySession().getId() : null);
+            ps.setObject(11, OffsetDateTime.ofInstant(photo.getCreatedAt(), ZoneOffset.UTC));
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_SESSION_PHOTO, photos, batchSize, (ps, photo) -> {
+            ps.setObject(1, sessionId);
+            ps.setObject(2, photo.getId());
+        });
+        jdbcTemplate.batchUpdate(LINK_SESSION_PHOTO, List.copyOf(reused), batchSize, (ps, photoId) -> {
+            ps.setObject(1, sessionId);
+            ps.setObject(2, photoId);
+            ps.setObject(3, sessionId);
+            ps.setObject(4, photoId);
+        });
+
+        List<Object[]> renditions = new ArrayList<>();
+        for (Photo photo : photos) {
+            for (PhotoRendition rendition : photo.getRenditions()) {
+                renditions.add(new Object[]{photo.getId(), rendition.getWidth(), rendition.getObjectName(), rendition.getUrl()});
+            }
+        }
+        if (!renditions.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RENDITION, renditions);
+        }
+        evictPhotoList(sessionId);
+    }
+
+    // the links bypass Hibernate, so the cached photo list of the session is dropped once they are visible
+    private void evictPhotoList(UUID sessionId) {
+        Runnable evict = () -> entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                .evictCollectionData(SESSION_PHOTOS, sessionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+}
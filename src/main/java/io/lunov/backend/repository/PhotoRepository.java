@@ -1,12 +1,23 @@
 package io.lunov.backend.repository;
 
 import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoStatus;
 import io.lunov.backend.model.entity.SessionAccessType;
 import io.lunov.backend.model.entity.SessionContentType;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,4 +33,157 @@ public interface PhotoRepository extends JpaRepository<Photo, UUID> {
     @Query("SELECT p FROM Photo p JOIN p.sessions s WHERE s.contentType = :contentType AND s.accessType = :accessType")
     List<Photo> findByPortfolio(SessionContentType contentType, SessionAccessType accessType);
 
+    boolean existsByBucketAndFilename(String bucket, String filename);
+
+    // keyset pages in upload order; the session's links come from idx_sessions_photos_session_id and are
+    // sorted per page, since the join table has no order to index. idx_photo_created_at_id only helps when
+    // the planner walks all photos in order instead, for sessions holding most of them
+    @Query("""
+            SELECT p FROM Photo p JOIN p.sessions s
+            WHERE s.id = :sessionId
+            ORDER BY p.createdAt, p.id
+            """)
+    List<Photo> findFirstPageBySessionId(UUID sessionId, Limit limit);
+
+    @Query("""
+            SELECT p FROM Photo p JOIN p.sessions s
+            WHERE s.id = :sessionId
+              AND (p.createdAt > :createdAt OR (p.createdAt = :createdAt AND p.id > :id))
+            ORDER BY p.createdAt, p.id
+            """)
+    List<Photo> findPageBySessionIdAfter(UUID sessionId, Instant createdAt, UUID id, Limit limit);
+
+    Optional<Photo> findFirstByContentHashOrderByCreatedAt(String contentHash);
+
+    boolean existsByContentHash(String contentHash);
+
+    boolean existsByIdAndStatus(UUID id, PhotoStatus status);
+
+    // photos still waiting for a preview requested before the cutoff; rows another instance
+    // is re-sending are skipped (lock timeout -2 is SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT p FROM Photo p
+            WHERE p.status = :status AND p.bucket IS NOT NULL
+              AND COALESCE(p.previewRequestedAt, p.createdAt) < :requestedBefore
+            ORDER BY p.createdAt
+            """)
+    List<Photo> lockRequestedBefore(PhotoStatus status, Instant requestedBefore, Limit limit);
+
+    // storage address of one rendition; photos stored before the bucket column live in their primary session's bucket
+    @Transactional(readOnly = true)
+    @Query(value = """
+            SELECT COALESCE(p.bucket, CAST(p.primary_session_id AS varchar)) AS bucket, r.object_name AS objectName
+            FROM photos p JOIN photo_renditions r ON r.photo_id = p.id
+            WHERE p.id = :photoId AND r.width = :width AND r.object_name IS NOT NULL
+            """, nativeQuery = true)
+    Optional<StoredObject> findRendition(UUID photoId, int width);
+
+    // originals of every photo the session lists, in upload order; photos reused from another session
+    // stay in that session's bucket, and photos stored before the bucket column in their primary session's
+    @Transactional(readOnly = true)
+    @Query(value = """
+            SELECT COALESCE(p.bucket, CAST(p.primary_session_id AS varchar)) AS bucket,
+                   COALESCE(p.object_name, p.filename || '_original.jpg') AS objectName, p.size_bytes AS sizeBytes
+            FROM sessions_photos sp JOIN photos p ON p.id = sp.photo_id
+            WHERE sp.session_id = :sessionId
+              AND COALESCE(p.bucket, CAST(p.primary_session_id AS varchar)) IS NOT NULL
+            ORDER BY p.created_at, p.id
+            """, nativeQuery = true)
+    List<StoredOriginal> findOriginalsBySessionId(UUID sessionId);
+
+    // the widest access a request has to a photo: PUBLIC through any public session listing it,
+    // PRIVATE through the access code of a session listing it, empty when it has none
+    @Transactional(readOnly = true)
+    @Query(value = """
+            SELECT CASE WHEN bool_or(s.access_type = 'PUBLIC') THEN 'PUBLIC'
+                        WHEN bool_or(s.access_code = :accessCode) THEN 'PRIVATE' END
+            FROM sessions_photos sp JOIN sessions s ON s.id = sp.session_id
+            WHERE sp.photo_id = :photoId
+            """, nativeQuery = true)
+    Optional<String> findAccessType(UUID photoId, String accessCode);
+
+    // --- set-based bulk deletion; nothing below loads Photo entities ---
+
+    // photos of the session that no other session links; only those rows are deleted, shared photos are unlinked
+    String EXCLUSIVE_TO_SESSION = """
+            SELECT sp.photo_id FROM sessions_photos sp
+            WHERE sp.session_id = :sessionId
+              AND NOT EXISTS (SELECT 1 FROM sessions_photos o
+                              WHERE o.photo_id = sp.photo_id AND o.session_id <> :sessionId)
+            """;
+    String SELECTED = " AND sp.photo_id IN (:photoIds)";
+
+    // every stored key of the photos: the original and one per rendition
+    String STORED_OBJECTS = """
+            SELECT p.bucket AS bucket, o.object_name AS objectName FROM photos p
+            CROSS JOIN LATERAL (SELECT p.object_name
+                                UNION
+                                SELECT r.object_name FROM photo_renditions r WHERE r.photo_id = p.id) o
+            WHERE p.bucket IS NOT NULL AND o.object_name IS NOT NULL AND p.id IN
+            """;
+
+    // links, renditions and the photo rows go in one statement; foreign keys are checked at its end
+    String DELETE_DOOMED = """
+            ),
+                 links AS (DELETE FROM sessions_photos WHERE photo_id IN (SELECT photo_id FROM doomed)),
+                 renditions AS (DELETE FROM photo_renditions WHERE photo_id IN (SELECT photo_id FROM doomed))
+            DELETE FROM photos WHERE id IN (SELECT photo_id FROM doomed)
+            """;
+
+    interface StoredObject {
+        String getBucket();
+        String getObjectName();
+    }
+
+    interface StoredOriginal extends StoredObject {
+        Long getSizeBytes();
+    }
+
+    @Query(value = STORED_OBJECTS + "(" + EXCLUSIVE_TO_SESSION + ")", nativeQuery = true)
+    List<StoredObject> findObjectsExclusiveToSession(UUID sessionId);
+
+    @Query(value = STORED_OBJECTS + "(" + EXCLUSIVE_TO_SESSION + SELECTED + ")", nativeQuery = true)
+    List<StoredObject> findObjectsExclusiveToSession(UUID sessionId, Collection<UUID> photoIds);
+
+    // native mutations name the tables they touch, so only the matching cache regions are cleared
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "photos"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sessions_photos"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "photo_renditions")
+    })
+    @Query(value = "WITH doomed AS (" + EXCLUSIVE_TO_SESSION + DELETE_DOOMED, nativeQuery = true)
+    int deleteExclusiveToSession(UUID sessionId);
+
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "photos"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sessions_photos"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "photo_renditions")
+    })
+    @Query(value = "WITH doomed AS (" + EXCLUSIVE_TO_SESSION + SELECTED + DELETE_DOOMED, nativeQuery = true)
+    int deleteExclusiveToSession(UUID sessionId, Collection<UUID> photoIds);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sessions_photos"))
+    @Query(value = "DELETE FROM sessions_photos WHERE session_id = :sessionId", nativeQuery = true)
+    int unlinkAllFromSession(UUID sessionId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sessions_photos"))
+    @Query(value = "DELETE FROM sessions_photos WHERE session_id = :sessionId AND photo_id IN (:photoIds)",
+            nativeQuery = true)
+    int unlinkFromSession(UUID sessionId, Collection<UUID> photoIds);
+
+    long countByBucket(String bucket);
+
+    // photos that outlive their primary session keep their objects, only the reference goes
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "photos"))
+    @Query(value = "UPDATE photos SET primary_session_id = NULL WHERE primary_session_id = :sessionId",
+            nativeQuery = true)
+    int clearPrimarySession(UUID sessionId);
+
 }
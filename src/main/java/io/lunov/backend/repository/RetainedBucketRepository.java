@@ -0,0 +1,9 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.RetainedBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RetainedBucketRepository extends JpaRepository<RetainedBucket, String> {
+}
@@ -1,21 +1,109 @@
 package io.lunov.backend.repository;
 
+import io.lunov.backend.model.dto.session.SessionSummaryDTO;
+import io.lunov.backend.model.dto.session.SessionVersionDTO;
 import io.lunov.backend.model.entity.Session;
 import io.lunov.backend.model.entity.SessionAccessType;
 import io.lunov.backend.model.entity.SessionContentType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface SessionRepository extends JpaRepository<Session, UUID>, JpaSpecificationExecutor<Session> {
+public interface SessionRepository extends JpaRepository<Session, UUID>, JpaSpecificationExecutor<Session>,
+        SessionVersionRepository {
+    // renditions of the fetched photos come in one batch, see hibernate.default_batch_fetch_size
+    @Override
+    @EntityGraph(attributePaths = "photos")
+    List<Session> findAll();
+
     List<Session> findAllByAccessType(SessionAccessType accessType);
     List<Session> findAllByClientId(UUID clientId);
+
+    // client login in one statement: the client is joined for the email check, photos come along for the mapper
+    @EntityGraph(attributePaths = "photos")
+    @Query("SELECT s FROM Session s JOIN s.client c WHERE s.accessCode = :accessCode AND c.email = :clientEmail")
     Optional<Session> findByAccessCodeAndClientEmail(String accessCode, String clientEmail);
+
     Optional<Session> findByContentTypeAndAccessType(SessionContentType contentType, SessionAccessType accessType);
 
+    // keyset pages, newest first; served by idx_session_created_at_id
+    @Query("SELECT s FROM Session s ORDER BY s.createdAt DESC, s.id DESC")
+    List<Session> findFirstPage(Limit limit);
+
+    @Query("""
+            SELECT s FROM Session s
+            WHERE s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)
+            ORDER BY s.createdAt DESC, s.id DESC
+            """)
+    List<Session> findPageAfter(Instant createdAt, UUID id, Limit limit);
+
+    // fuzzy match on session name or client name/email, best match first; each branch
+    // is served by its own trigram index (see import.sql), so the OR never scans a table
+    @Query(value = """
+            SELECT s.* FROM sessions s
+            JOIN (
+                SELECT m.id, MAX(m.score) AS score FROM (
+                    SELECT s1.id, similarity(lower(s1.name), :query) AS score
+                    FROM sessions s1
+                    WHERE lower(s1.name) % :query
+                    UNION ALL
+                    SELECT s2.id, GREATEST(similarity(lower(c.name), :query), similarity(lower(c.email), :query))
+                    FROM clients c JOIN sessions s2 ON s2.client_id = c.id
+                    WHERE lower(c.name) % :query OR lower(c.email) % :query
+                ) m
+                GROUP BY m.id
+            ) ranked ON ranked.id = s.id
+            ORDER BY ranked.score DESC, s.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Session> searchFuzzy(String query, int limit);
+
+    // session cards: one aggregate row per session, photos are joined but never loaded
+    String SUMMARY_SELECT = """
+            SELECT new io.lunov.backend.model.dto.session.SessionSummaryDTO(
+                s.id, s.name, s.client.id, s.accessType, s.contentType, s.sessionDate, s.createdAt,
+                COUNT(p), SUM(p.sizeBytes),
+                (SELECT cp.previewUrl FROM Photo cp JOIN cp.sessions cs
+                 WHERE cs.id = s.id AND cp.previewUrl IS NOT NULL AND cp.previewUrl <> 'none'
+                 ORDER BY cp.createdAt, cp.id
+                 LIMIT 1))
+            FROM Session s LEFT JOIN s.photos p
+            """;
+
+    @Query(SUMMARY_SELECT + """
+            GROUP BY s.id
+            ORDER BY s.createdAt DESC, s.id DESC
+            """)
+    List<SessionSummaryDTO> findFirstSummaryPage(Limit limit);
+
+    @Query(SUMMARY_SELECT + """
+            WHERE s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)
+            GROUP BY s.id
+            ORDER BY s.createdAt DESC, s.id DESC
+            """)
+    List<SessionSummaryDTO> findSummaryPageAfter(Instant createdAt, UUID id, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM Session s WHERE s.id = :id")
+    int deleteDirectlyById(UUID id);
+
+    @Query("SELECT new io.lunov.backend.model.dto.session.SessionVersionDTO(s.id, s.contentVersion) FROM Session s WHERE s.id = :id")
+    Optional<SessionVersionDTO> findVersionById(UUID id);
+
+    @Query("""
+            SELECT new io.lunov.backend.model.dto.session.SessionVersionDTO(s.id, s.contentVersion) FROM Session s
+            WHERE s.accessCode = :accessCode AND s.client.email = :clientEmail
+            """)
+    Optional<SessionVersionDTO> findVersionByAccessCodeAndClientEmail(String accessCode, String clientEmail);
+
 }
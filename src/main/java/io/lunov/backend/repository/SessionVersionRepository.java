@@ -0,0 +1,19 @@
+package io.lunov.backend.repository;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Content version bumps of {@link SessionRepository}, implemented by hand so that only
+ * the bumped sessions leave the second-level cache, see {@link SessionVersionRepositoryImpl}.
+ */
+public interface SessionVersionRepository {
+
+    int incrementContentVersion(UUID id);
+
+    // every session listing one of the photos, e.g. after previews were rendered or links changed
+    int incrementContentVersionByPhotoIds(Collection<UUID> photoIds);
+
+    // other sessions sharing a photo with this one; their photo lists name this session
+    int incrementContentVersionOfSharingSessions(UUID sessionId);
+}
@@ -0,0 +1,94 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.Session;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bumps content versions with native updates. Hibernate clears every cache region mapped
+ * to the tables a bulk update names, which for the sessions table is the whole Session
+ * region on every instance; the updates therefore name a query space no region is mapped
+ * to, and the bumped sessions are evicted one by one once the change is visible.
+ */
+@RequiredArgsConstructor
+public class SessionVersionRepositoryImpl implements SessionVersionRepository {
+
+    private static final String CONTENT_VERSION_SPACE = "sessions.content_version";
+    private static final String INCREMENT = "UPDATE sessions SET content_version = content_version + 1 WHERE id IN (:ids)";
+    private static final String SESSIONS_OF_PHOTOS =
+            "SELECT DISTINCT session_id FROM sessions_photos WHERE photo_id IN (:photoIds)";
+    private static final String SHARING_SESSIONS = """
+            SELECT DISTINCT o.session_id FROM sessions_photos sp
+            JOIN sessions_photos o ON o.photo_id = sp.photo_id
+            WHERE sp.session_id = :sessionId AND o.session_id <> :sessionId
+            """;
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int incrementContentVersion(UUID id) {
+        return increment(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public int incrementContentVersionByPhotoIds(Collection<UUID> photoIds) {
+        if (photoIds.isEmpty()) {
+            return 0;
+        }
+        return increment(sessionIds(SESSIONS_OF_PHOTOS, "photoIds", photoIds));
+    }
+
+    @Override
+    @Transactional
+    public int incrementContentVersionOfSharingSessions(UUID sessionId) {
+        return increment(sessionIds(SHARING_SESSIONS, "sessionId", sessionId));
+    }
+
+    // reads evict nothing; the space only makes pending link changes flush first
+    @SuppressWarnings("unchecked")
+    private List<UUID> sessionIds(String sql, String parameter, Object value) {
+        return entityManager.createNativeQuery(sql, UUID.class)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, "sessions_photos")
+                .setParameter(parameter, value)
+                .getResultList();
+    }
+
+    private int increment(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int updated = entityManager.createNativeQuery(INCREMENT)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, CONTENT_VERSION_SPACE)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        evictAfterCommit(ids);
+        return updated;
+    }
+
+    // evicted earlier, a concurrent load could cache the old version again before the commit
+    private void evictAfterCommit(List<UUID> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Runnable evict = () -> ids.forEach(id -> cache.evict(Session.class, id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+}
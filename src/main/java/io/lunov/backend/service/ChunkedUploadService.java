@@ -0,0 +1,16 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.upload.ChunkedUploadCreateDTO;
+import io.lunov.backend.model.dto.upload.ChunkedUploadDTO;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface ChunkedUploadService {
+    ChunkedUploadDTO create(UUID sessionId, ChunkedUploadCreateDTO dto);
+    ChunkedUploadDTO findById(UUID uploadId);
+    ChunkedUploadDTO uploadChunk(UUID uploadId, int chunkNumber, InputStream body);
+    PhotoInfoDTO complete(UUID uploadId);
+    void abort(UUID uploadId);
+}
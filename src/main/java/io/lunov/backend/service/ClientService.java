@@ -2,6 +2,7 @@ package io.lunov.backend.service;
 
 import io.lunov.backend.model.dto.client.ClientDTO;
 import io.lunov.backend.model.dto.client.ClientInfoDTO;
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.model.entity.Client;
 
 import java.util.List;
@@ -15,6 +16,8 @@ public interface ClientService {
     ClientInfoDTO findByName(String name);
     ClientInfoDTO findByEmail(String email);
     List<ClientInfoDTO> findAll();
+    List<ClientInfoDTO> searchFuzzy(String query, Integer size);
+    CursorPageDTO<ClientInfoDTO> findPage(String cursor, Integer size);
     ClientInfoDTO update(UUID id, ClientDTO client);
     void delete(UUID id);
 }
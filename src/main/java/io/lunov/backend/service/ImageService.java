@@ -1,22 +1,36 @@
 package io.lunov.backend.service;
 
 import io.lunov.backend.model.dto.image.ImageUploadResponse;
+import io.lunov.backend.model.dto.image.RenditionDTO;
 import io.lunov.backend.model.dto.photo.PhotoUploadDTO;
-import org.springframework.core.io.ByteArrayResource;
+import io.lunov.backend.repository.PhotoRepository.StoredOriginal;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
 import java.util.UUID;
 
 public interface ImageService {
     ImageUploadResponse uploadImageWithPreview(UUID sessionId, PhotoUploadDTO payload);
+    ImageUploadResponse uploadOriginal(UUID sessionId, PhotoUploadDTO payload);
+    List<RenditionDTO> generateRenditions(String bucketName, String fileName) throws Exception;
     String getPublicUrl(String bucketName, String objectName);
     String getPresignedUrl(String bucketName, String objectName, int expiryMinutes);
+    String getPresignedUploadUrl(String bucketName, String objectName, int expiryMinutes);
+    Optional<Long> findObjectSize(String bucketName, String objectName);
+    void downloadObject(String bucketName, String objectName, Path target) throws IOException;
     void createPreview(InputStream inputStream, ByteArrayOutputStream outputStream);
-    ByteArrayResource createZipArchive(String bucketName) throws Exception;
+    void writeZipArchive(String archiveName, List<StoredOriginal> originals, OutputStream outputStream) throws Exception;
     byte[] createPreviewBytes(InputStream input);
+    SortedMap<Integer, byte[]> createRenditions(InputStream input) throws IOException;
     boolean isBucketExists(String bucketName);
-    void deleteImage(String bucketName, String fileName);
+    void deleteObjects(String bucketName, Collection<String> objectNames);
     void deleteBucket(String bucketName);
 }
@@ -0,0 +1,11 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.BulkDeleteResultDTO;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface PhotoBulkDeleteService {
+    BulkDeleteResultDTO deletePhotos(UUID sessionId, Collection<UUID> photoIds);
+    BulkDeleteResultDTO deleteSession(UUID sessionId);
+}
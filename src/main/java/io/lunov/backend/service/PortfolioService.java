@@ -0,0 +1,13 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.portfolio.PortfolioDTO;
+import io.lunov.backend.model.dto.session.SessionInfoDTO;
+import io.lunov.backend.model.entity.SessionContentType;
+
+import java.util.List;
+
+public interface PortfolioService {
+    List<SessionInfoDTO> findAlbums();
+    PortfolioDTO findByContentType(SessionContentType contentType);
+    void evict();
+}
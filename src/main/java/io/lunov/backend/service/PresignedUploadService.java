@@ -0,0 +1,14 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadCompleteDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadRequestDTO;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface PresignedUploadService {
+    List<PresignedUploadDTO> createUploads(UUID sessionId, PresignedUploadRequestDTO dto);
+    List<PhotoUploadResultDTO> complete(UUID sessionId, PresignedUploadCompleteDTO dto);
+}
@@ -0,0 +1,12 @@
+package io.lunov.backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.UUID;
+
+public interface PreviewDeliveryService {
+    void servePreview(UUID photoId, String accessCode, HttpServletRequest request, HttpServletResponse response)
+            throws IOException;
+}
@@ -0,0 +1,10 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.PreviewRequestMessage;
+
+import java.util.UUID;
+
+public interface PreviewService {
+    void requestPreview(UUID photoId, String bucketName, String fileName);
+    void generatePreview(PreviewRequestMessage message);
+}
@@ -1,8 +1,10 @@
 package io.lunov.backend.service;
 
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.model.dto.session.*;
 import io.lunov.backend.model.entity.Session;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,11 +15,18 @@ public interface SessionService {
     SessionInfoDTO findById(UUID id);
     Session getById(UUID id);
     SessionInfoDTO findByAccessCodeAndClientEmail(SessionDownloadDTO payload);
+    SessionVersionDTO findVersion(UUID id);
+    SessionVersionDTO findVersion(SessionDownloadDTO payload);
+    void incrementContentVersion(UUID id);
+    void incrementContentVersionByPhotoIds(Collection<UUID> photoIds);
     List<SessionInfoDTO> findAll();
+    CursorPageDTO<SessionInfoDTO> findPage(String cursor, Integer size);
+    CursorPageDTO<SessionSummaryDTO> findSummaryPage(String cursor, Integer size);
     List<SessionInfoDTO> findAllByClientId(UUID clientId);
     Optional<Session> findAllByContentTypeAndAccessType(String contentType, String accessType);
     List<SessionInfoDTO> findAllByAccessType(String accessType);
     List<SessionInfoDTO> findByFilters(SessionSearchDTO sessionInfoSearchDTO);
+    List<SessionInfoDTO> searchFuzzy(String query, Integer size);
     SessionInfoDTO update(UUID id, SessionUpdateDTO dto);
     UUID updateEntity(Session session);
     void delete(UUID id);
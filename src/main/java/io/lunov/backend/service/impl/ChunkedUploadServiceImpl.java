@@ -0,0 +1,288 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.upload.ChunkedUploadCreateDTO;
+import io.lunov.backend.model.dto.upload.ChunkedUploadDTO;
+import io.lunov.backend.model.entity.ChunkedUpload;
+import io.lunov.backend.model.entity.ChunkedUploadPart;
+import io.lunov.backend.model.entity.ChunkedUploadStatus;
+import io.lunov.backend.model.exception.UploadNotFoundException;
+import io.lunov.backend.repository.ChunkedUploadPartRepository;
+import io.lunov.backend.repository.ChunkedUploadRepository;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.service.ChunkedUploadService;
+import io.lunov.backend.service.PhotoService;
+import io.lunov.backend.service.SessionService;
+import io.lunov.backend.util.storage.MultipartMinioClient;
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.lunov.backend.service.impl.ImageServiceImpl.ORIGINAL_JPG;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    // S3 rejects multipart parts below 5 MB, except for the last one
+    private static final DataSize MIN_CHUNK_SIZE = DataSize.ofMegabytes(5);
+    private static final int MAX_CHUNKS = 10_000;
+    private static final int CLEANUP_BATCH_SIZE = 500;
+
+    private final MultipartMinioClient multipartClient;
+    private final SessionService sessionService;
+    private final PhotoService photoService;
+    private final ChunkedUploadRepository repository;
+    private final ChunkedUploadPartRepository partRepository;
+    private final PhotoRepository photoRepository;
+
+    @Value("${upload.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    @Value("${upload.expire-after:P1D}")
+    private Duration expireAfter;
+
+    @PostConstruct
+    void validateChunkSize() {
+        if (chunkSize.compareTo(MIN_CHUNK_SIZE) < 0 || chunkSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("upload.chunk-size must be between 5MB and 2GB, got " + chunkSize);
+        }
+    }
+
+    @Override
+    public ChunkedUploadDTO create(UUID sessionId, ChunkedUploadCreateDTO dto) {
+        if (dto.getTotalSize() <= 0) {
+            throw new IllegalArgumentException("Upload size must be positive");
+        }
+        if (dto.getTotalSize() > chunkSize.toBytes() * MAX_CHUNKS) {
+            throw new IllegalArgumentException("Upload of %d bytes exceeds %d chunks of %s"
+                    .formatted(dto.getTotalSize(), MAX_CHUNKS, chunkSize));
+        }
+        sessionService.getById(sessionId);
+
+        String fileName = "photo_" + UUID.randomUUID().toString().substring(0, 8);
+        String storageUploadId;
+        try {
+            storageUploadId = multipartClient.createMultipartUpload(
+                    sessionId.toString(), fileName + ORIGINAL_JPG, "image/jpeg");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to start upload: " + e.getMessage(), e);
+        }
+
+        ChunkedUpload upload = repository.save(ChunkedUpload.builder()
+                .sessionId(sessionId)
+                .fileName(fileName)
+                .originalFilename(dto.getOriginalFilename())
+                .storageUploadId(storageUploadId)
+                .totalSize(dto.getTotalSize())
+                .chunkSize(chunkSize.toBytes())
+                .status(ChunkedUploadStatus.ACTIVE)
+                .statusChangedAt(Instant.now())
+                .build());
+        log.info("Started chunked upload {} of {} ({} bytes, {} chunks) in session {}", upload.getId(),
+                dto.getOriginalFilename(), upload.getTotalSize(), upload.getTotalChunks(), sessionId);
+        return toDto(upload, List.of());
+    }
+
+    @Override
+    public ChunkedUploadDTO findById(UUID uploadId) {
+        ChunkedUpload upload = getById(uploadId);
+        return toDto(upload, partRepository.findByUploadIdOrderByPartNumber(uploadId));
+    }
+
+    // not transactional: the chunk goes to storage first and only then is acknowledged in its own insert
+    @Override
+    public ChunkedUploadDTO uploadChunk(UUID uploadId, int chunkNumber, InputStream body) {
+        ChunkedUpload upload = getActive(uploadId);
+        if (chunkNumber < 1 || chunkNumber > upload.getTotalChunks()) {
+            throw new IllegalArgumentException("Chunk number must be between 1 and %d"
+                    .formatted(upload.getTotalChunks()));
+        }
+
+        long expectedSize = upload.expectedChunkSize(chunkNumber);
+        byte[] data;
+        try {
+            data = body.readNBytes((int) expectedSize);
+            if (data.length != expectedSize || body.read() != -1) {
+                throw new IllegalArgumentException("Chunk %d must be exactly %d bytes"
+                        .formatted(chunkNumber, expectedSize));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read chunk %d: %s".formatted(chunkNumber, e.getMessage()));
+        }
+
+        String etag;
+        try {
+            etag = multipartClient.uploadPart(upload.getSessionId().toString(), objectName(upload),
+                    upload.getStorageUploadId(), chunkNumber, data);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to store chunk %d: %s".formatted(chunkNumber, e.getMessage()), e);
+        }
+
+        // a re-sent chunk replaces the earlier copy of the same part
+        partRepository.upsert(uploadId, chunkNumber, etag, data.length);
+
+        return toDto(upload, partRepository.findByUploadIdOrderByPartNumber(uploadId));
+    }
+
+    // the upload is COMPLETED only once its photo is registered; a failed registration leaves it STORED,
+    // and completing it again registers the assembled original without touching the parts
+    @Override
+    public PhotoInfoDTO complete(UUID uploadId) {
+        ChunkedUpload upload = getById(uploadId);
+        switch (upload.getStatus()) {
+            case ACTIVE -> assemble(upload);
+            case STORED -> claim(uploadId, ChunkedUploadStatus.STORED);
+            default -> throw new IllegalArgumentException("Upload %s is %s".formatted(uploadId, upload.getStatus()));
+        }
+
+        PhotoInfoDTO photo;
+        try {
+            photo = photoService.registerStoredOriginals(upload.getSessionId(),
+                    Map.of(upload.getFileName(), upload.getTotalSize())).getFirst();
+        } catch (RuntimeException e) {
+            repository.updateStatus(uploadId, ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.STORED);
+            throw e;
+        }
+        repository.updateStatus(uploadId, ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.COMPLETED);
+        log.info("Completed chunked upload {} as photo {}", uploadId, photo.getId());
+        return photo;
+    }
+
+    // joins the parts into the original in storage; the upload is left claimed as COMPLETING
+    private void assemble(ChunkedUpload upload) {
+        UUID uploadId = upload.getId();
+        List<ChunkedUploadPart> parts = partRepository.findByUploadIdOrderByPartNumber(uploadId);
+        if (parts.size() != upload.getTotalChunks()) {
+            throw new IllegalArgumentException("Upload %s has %d of %d chunks"
+                    .formatted(uploadId, parts.size(), upload.getTotalChunks()));
+        }
+
+        claim(uploadId, ChunkedUploadStatus.ACTIVE);
+        try {
+            multipartClient.completeMultipartUpload(upload.getSessionId().toString(), objectName(upload),
+                    upload.getStorageUploadId(),
+                    parts.stream().map(part -> new Part(part.getPartNumber(), part.getEtag())).toArray(Part[]::new));
+        } catch (Exception e) {
+            repository.updateStatus(uploadId, ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.ACTIVE);
+            throw new RuntimeException("Failed to complete upload %s: %s".formatted(uploadId, e.getMessage()), e);
+        }
+    }
+
+    // of concurrent completions only the one moving the upload out of the given status goes on
+    private void claim(UUID uploadId, ChunkedUploadStatus from) {
+        if (repository.updateStatus(uploadId, from, ChunkedUploadStatus.COMPLETING) == 0) {
+            throw new IllegalArgumentException("Upload %s is already being completed or aborted".formatted(uploadId));
+        }
+    }
+
+    @Override
+    public void abort(UUID uploadId) {
+        ChunkedUpload upload = getActive(uploadId);
+        if (repository.updateStatus(uploadId, ChunkedUploadStatus.ACTIVE, ChunkedUploadStatus.ABORTED) == 0) {
+            throw new IllegalArgumentException("Upload %s is already being completed or aborted".formatted(uploadId));
+        }
+        abortStorageUpload(upload);
+        partRepository.deleteByUploadId(uploadId);
+        log.info("Aborted chunked upload {}", uploadId);
+    }
+
+    // abandoned uploads keep their parts in storage until the multipart upload is aborted, and completions
+    // that died or were never retried leave an original without a photo; finished uploads are forgotten
+    // after the same time
+    @Scheduled(fixedDelayString = "${upload.cleanup-interval:PT1H}")
+    public void deleteExpired() {
+        List<ChunkedUpload> expired = repository.findByStatusChangedAtBefore(
+                Instant.now().minus(expireAfter), Limit.of(CLEANUP_BATCH_SIZE));
+        int deleted = 0;
+        for (ChunkedUpload upload : expired) {
+            ChunkedUploadStatus status = upload.getStatus();
+            if (status == ChunkedUploadStatus.ACTIVE || status == ChunkedUploadStatus.COMPLETING
+                    || status == ChunkedUploadStatus.STORED) {
+                if (repository.updateStatus(upload.getId(), status, ChunkedUploadStatus.ABORTED) == 0) {
+                    continue;
+                }
+                if (status != ChunkedUploadStatus.STORED) {
+                    abortStorageUpload(upload);
+                }
+                if (status != ChunkedUploadStatus.ACTIVE) {
+                    deleteUnregisteredOriginal(upload);
+                }
+            }
+            partRepository.deleteByUploadId(upload.getId());
+            repository.deleteById(upload.getId());
+            deleted++;
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} chunked uploads unchanged for {}", deleted, expireAfter);
+        }
+    }
+
+    private void abortStorageUpload(ChunkedUpload upload) {
+        try {
+            multipartClient.abortMultipartUpload(upload.getSessionId().toString(), objectName(upload),
+                    upload.getStorageUploadId());
+        } catch (Exception e) {
+            log.error("Failed to abort storage upload of {}: {}", upload.getId(), e.getMessage());
+        }
+    }
+
+    // a completion may have died after registering the photo, which then owns the original
+    private void deleteUnregisteredOriginal(ChunkedUpload upload) {
+        String bucketName = upload.getSessionId().toString();
+        if (photoRepository.existsByBucketAndFilename(bucketName, upload.getFileName())) {
+            return;
+        }
+        try {
+            multipartClient.deleteObject(bucketName, objectName(upload));
+        } catch (Exception e) {
+            log.error("Failed to delete unregistered original of {}: {}", upload.getId(), e.getMessage());
+        }
+    }
+
+    private ChunkedUpload getById(UUID uploadId) {
+        return repository.findById(uploadId).orElseThrow(
+                () -> new UploadNotFoundException("Upload with id: %s - not found!".formatted(uploadId)));
+    }
+
+    private ChunkedUpload getActive(UUID uploadId) {
+        ChunkedUpload upload = getById(uploadId);
+        if (upload.getStatus() != ChunkedUploadStatus.ACTIVE) {
+            throw new IllegalArgumentException("Upload %s is %s".formatted(uploadId, upload.getStatus()));
+        }
+        return upload;
+    }
+
+    private String objectName(ChunkedUpload upload) {
+        return upload.getFileName() + ORIGINAL_JPG;
+    }
+
+    private ChunkedUploadDTO toDto(ChunkedUpload upload, List<ChunkedUploadPart> parts) {
+        return ChunkedUploadDTO.builder()
+                .id(upload.getId())
+                .sessionId(upload.getSessionId())
+                .originalFilename(upload.getOriginalFilename())
+                .totalSize(upload.getTotalSize())
+                .chunkSize(upload.getChunkSize())
+                .totalChunks(upload.getTotalChunks())
+                .receivedChunks(parts.stream().map(ChunkedUploadPart::getPartNumber).toList())
+                .receivedBytes(parts.stream().mapToLong(ChunkedUploadPart::getSize).sum())
+                .status(upload.getStatus().name())
+                .build();
+    }
+}
@@ -2,12 +2,16 @@ package io.lunov.backend.service.impl;
 
 import io.lunov.backend.model.dto.client.ClientDTO;
 import io.lunov.backend.model.dto.client.ClientInfoDTO;
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.model.entity.Client;
 import io.lunov.backend.model.exception.ClientAlreadyExistException;
 import io.lunov.backend.model.exception.ClientNotFoundException;
 import io.lunov.backend.repository.ClientRepository;
 import io.lunov.backend.service.ClientService;
 import io.lunov.backend.util.mapper.ClientMapper;
+import io.lunov.backend.util.pagination.KeysetPaging;
+import io.lunov.backend.util.pagination.PageCursor;
+import io.lunov.backend.util.security.LoginAttemptGuard;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +30,8 @@ public class ClientServiceImpl implements ClientService {
 
     private final ClientRepository repository;
     private final ClientMapper mapper;
+    private final KeysetPaging paging;
+    private final LoginAttemptGuard loginGuard;
 
     private static final String CLIENT_EXIST_MESSAGE = "Client with email: %s - already exist";
     private static final String CLIENT_NOT_EXIST_MESSAGE = "Client with id/name: %s - doesn't exist";
@@ -102,6 +108,33 @@ public class ClientServiceImpl implements ClientService {
         return clients.stream().map(mapper::toInfoDTO).toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ClientInfoDTO> searchFuzzy(String query, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be blank");
+        }
+        log.info("Fuzzy searching clients for: {}", query);
+        return repository.searchFuzzy(query.trim().toLowerCase(), paging.resolveSize(size)).stream()
+                .map(mapper::toInfoDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ClientInfoDTO> findPage(String cursor, Integer size) {
+        int pageSize = paging.resolveSize(size);
+        List<Client> clients;
+        if (cursor == null) {
+            clients = repository.findFirstPage(paging.limitFor(pageSize));
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            clients = repository.findPageAfter(after.createdAt(), after.id(), paging.limitFor(pageSize));
+        }
+        return paging.toPage(clients, pageSize, mapper::toInfoDTO,
+                client -> new PageCursor(client.getCreatedAt(), client.getId()));
+    }
+
     @Override
     @Transactional
     public ClientInfoDTO update(UUID id, ClientDTO client) {
@@ -115,6 +148,9 @@ public class ClientServiceImpl implements ClientService {
         Optional.ofNullable(client.getPhoneNumber()).ifPresent(existingClient::setPhoneNumber);
 
         var updatedClient = repository.save(existingClient);
+        if (client.getEmail() != null) {
+            loginGuard.invalidateMisses();
+        }
         log.info("Client with id: {} has been updated", id);
         return mapper.toInfoDTO(updatedClient);
     }
@@ -1,16 +1,22 @@
 package io.lunov.backend.service.impl;
 
 import io.lunov.backend.model.dto.image.ImageUploadResponse;
+import io.lunov.backend.model.dto.image.RenditionDTO;
 import io.lunov.backend.model.dto.photo.PhotoUploadDTO;
+import io.lunov.backend.repository.PhotoRepository.StoredOriginal;
 import io.lunov.backend.service.ImageService;
+import io.lunov.backend.util.io.TeeInputStream;
+import io.lunov.backend.util.storage.BucketRegistry;
+import io.lunov.backend.util.storage.PreviewDiskCache;
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -18,10 +24,31 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 @Slf4j
 @Service
@@ -29,7 +56,10 @@ import java.util.zip.ZipOutputStream;
 public class ImageServiceImpl implements ImageService {
     public static final String NONE_URL = "none";
     public static final String ORIGINAL_JPG = "_original.jpg";
-    public static final String PREVIEW_JPG = "_preview.jpg";
+    // S3 caps a multi-object delete at 1000 keys
+    private static final int DELETE_PAGE_SIZE = 1000;
+    public static final String RENDITION_JPG = "%s_%d.jpg";
+    private static final int PIPE_BUFFER_SIZE = 1024 * 1024;
     public static final String POLICY = """
             {
                 "Version": "2012-10-17",
@@ -47,134 +77,312 @@ public class ImageServiceImpl implements ImageService {
     private String minioUrl;
 
     private final MinioClient minioClient;
+    private final ZipArchiveAssembler zipArchiveAssembler;
+    private final ExecutorService imageExecutor;
+    private final PreviewRenderer previewRenderer;
+    private final BucketRegistry bucketRegistry;
+    private final PreviewDiskCache previewDiskCache;
 
     @Override
     public ImageUploadResponse uploadImageWithPreview(UUID sessionId, PhotoUploadDTO payload) {
+        String bucketName = sessionId.toString();
         String originalName = payload.getFileName() + ORIGINAL_JPG;
-        String previewName = payload.getFileName() + PREVIEW_JPG;
 
         try {
-            if (!isBucketExists(sessionId.toString())) {
+            if (!isBucketExists(bucketName)) {
                 return ImageUploadResponse.builder()
                         .isSuccess(false)
+                        .error("Storage bucket for session %s does not exist".formatted(sessionId))
                         .build();
             }
             MultipartFile file = payload.getFile();
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(sessionId.toString())
-                            .object(originalName)
-                            .stream(file.getInputStream(), file.getSize(), -1)
-                            .contentType("image/jpeg")
-                            .build()
-            );
-
-            var previewBytes = createPreviewBytes(file.getInputStream());
+            SortedMap<Integer, byte[]> renditions;
+            MessageDigest digest = sha256();
+            try (InputStream source = new DigestInputStream(file.getInputStream(), digest)) {
+                renditions = uploadOriginalWithRenditions(bucketName, originalName, source, file.getSize());
+            }
 
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(sessionId.toString())
-                            .object(previewName)
-                            .stream(new ByteArrayInputStream(previewBytes),
-                                    previewBytes.length, -1)
-                            .contentType("image/jpeg")
-                            .build()
-            );
+            List<RenditionDTO> storedRenditions = uploadRenditions(bucketName, payload.getFileName(), renditions);
+            RenditionDTO preview = storedRenditions.stream()
+                    .filter(rendition -> rendition.getWidth() == previewRenderer.getDefaultWidth())
+                    .findFirst()
+                    .orElse(null);
 
             return ImageUploadResponse.builder()
                     .originalFileName(originalName)
-                    .previewFileName(previewName)
-                    .originalUrl(getPublicUrl(sessionId.toString(), originalName))
-                    .previewUrl(getPublicUrl(sessionId.toString(), previewName))
+                    .previewFileName(preview != null ? preview.getFileName() : null)
+                    .originalUrl(getPublicUrl(bucketName, originalName))
+                    .previewUrl(preview != null ? preview.getUrl() : NONE_URL)
+                    .renditions(storedRenditions)
+                    .contentHash(HexFormat.of().formatHex(digest.digest()))
+                    .originalSize(file.getSize())
                     .isSuccess(true)
                     .build();
         } catch (Exception e) {
           log.info("Something went wrong when uploading image with preview. {}", e.getMessage());
           return ImageUploadResponse.builder()
                   .originalFileName(originalName)
-                  .previewFileName(previewName)
                   .originalUrl(NONE_URL)
                   .previewUrl(NONE_URL)
+                  .renditions(List.of())
                   .isSuccess(false)
+                  .error(e.getMessage())
                   .build();
         }
 
     }
 
     @Override
-    public String getPublicUrl(String bucketName, String objectName) {
-        return String.format("%s/%s/%s", minioUrl, bucketName, objectName);
+    public ImageUploadResponse uploadOriginal(UUID sessionId, PhotoUploadDTO payload) {
+        String bucketName = sessionId.toString();
+        String originalName = payload.getFileName() + ORIGINAL_JPG;
+
+        try {
+            if (!isBucketExists(bucketName)) {
+                return ImageUploadResponse.builder()
+                        .isSuccess(false)
+                        .error("Storage bucket for session %s does not exist".formatted(sessionId))
+                        .build();
+            }
+            MultipartFile file = payload.getFile();
+            MessageDigest digest = sha256();
+            try (InputStream source = new DigestInputStream(file.getInputStream(), digest)) {
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(originalName)
+                                .stream(source, file.getSize(), -1)
+                                .contentType("image/jpeg")
+                                .build()
+                );
+            }
+
+            return ImageUploadResponse.builder()
+                    .originalFileName(originalName)
+                    .originalUrl(getPublicUrl(bucketName, originalName))
+                    .renditions(List.of())
+                    .contentHash(HexFormat.of().formatHex(digest.digest()))
+                    .originalSize(file.getSize())
+                    .isSuccess(true)
+                    .build();
+        } catch (Exception e) {
+            log.info("Something went wrong when uploading original image. {}", e.getMessage());
+            return ImageUploadResponse.builder()
+                    .originalFileName(originalName)
+                    .originalUrl(NONE_URL)
+                    .renditions(List.of())
+                    .isSuccess(false)
+                    .error(e.getMessage())
+                    .build();
+        }
     }
 
     @Override
-    public String getPresignedUrl(String bucketName, String objectName, int expiryDays) {
+    public List<RenditionDTO> generateRenditions(String bucketName, String fileName) throws Exception {
+        SortedMap<Integer, byte[]> renditions;
+        try (GetObjectResponse original = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(fileName + ORIGINAL_JPG)
+                        .build()
+        )) {
+            renditions = previewRenderer.render(original);
+        }
+        return uploadRenditions(bucketName, fileName, renditions);
+    }
+
+    // The upload is read once: bytes going to MinIO are teed into a pipe the renditions are decoded from.
+    private SortedMap<Integer, byte[]> uploadOriginalWithRenditions(String bucketName, String objectName,
+                                                                    InputStream source, long size) throws Exception {
+        PipedInputStream previewSource = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream previewSink = new PipedOutputStream(previewSource);
+        Future<SortedMap<Integer, byte[]>> renditions = imageExecutor.submit(() -> {
+            try (previewSource) {
+                return createRenditions(previewSource);
+            }
+        });
+
+        try (TeeInputStream tee = new TeeInputStream(source, previewSink)) {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .stream(tee, size, -1)
+                            .contentType("image/jpeg")
+                            .build()
+            );
+            log.debug("Uploaded {}/{}: {} bytes read from upload", bucketName, objectName, tee.getBytesRead());
+        } catch (Exception e) {
+            renditions.cancel(true);
+            throw e;
+        }
+
         try {
-            return minioClient.getPresignedObjectUrl(
-                    GetPresignedObjectUrlArgs.builder()
-                            .method(Method.GET)
+            return renditions.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to create renditions for " + objectName, e.getCause());
+        }
+    }
+
+    private List<RenditionDTO> uploadRenditions(String bucketName, String fileName,
+                                                SortedMap<Integer, byte[]> renditions) throws Exception {
+        List<RenditionDTO> stored = new ArrayList<>();
+        // widths the source was too small for share one encoding; they point to the smallest of them
+        Map<byte[], RenditionDTO> uploaded = new IdentityHashMap<>();
+        for (var rendition : renditions.entrySet()) {
+            byte[] bytes = rendition.getValue();
+            RenditionDTO same = uploaded.get(bytes);
+            if (same != null) {
+                stored.add(RenditionDTO.builder()
+                        .width(rendition.getKey())
+                        .fileName(same.getFileName())
+                        .url(same.getUrl())
+                        .build());
+                continue;
+            }
+            String objectName = renditionName(fileName, rendition.getKey());
+            minioClient.putObject(
+                    PutObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
-                            .expiry(expiryDays, TimeUnit.DAYS)
+                            .stream(new ByteArrayInputStream(bytes), bytes.length, -1)
+                            .contentType("image/jpeg")
                             .build()
             );
+            RenditionDTO dto = RenditionDTO.builder()
+                    .width(rendition.getKey())
+                    .fileName(objectName)
+                    .url(getPublicUrl(bucketName, objectName))
+                    .build();
+            uploaded.put(bytes, dto);
+            stored.add(dto);
+        }
+        return stored;
+    }
+
+    // the hash is taken from the same single read that feeds storage, so it costs no extra I/O
+    private static MessageDigest sha256() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256");
+    }
+
+    public static String renditionName(String fileName, int width) {
+        return RENDITION_JPG.formatted(fileName, width);
+    }
+
+    @Override
+    public String getPublicUrl(String bucketName, String objectName) {
+        return String.format("%s/%s/%s", minioUrl, bucketName, objectName);
+    }
+
+    @Override
+    public String getPresignedUrl(String bucketName, String objectName, int expiryMinutes) {
+        try {
+            return presign(bucketName, objectName, Method.GET, expiryMinutes);
         } catch (Exception e) {
             log.error("Something went wrong when getting presigned URL. {}", e.getMessage());
             return NONE_URL;
         }
     }
 
+    @Override
+    public String getPresignedUploadUrl(String bucketName, String objectName, int expiryMinutes) {
+        try {
+            return presign(bucketName, objectName, Method.PUT, expiryMinutes);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to sign upload of %s: %s".formatted(objectName, e.getMessage()), e);
+        }
+    }
+
+    private String presign(String bucketName, String objectName, Method method, int expiryMinutes) throws Exception {
+        return minioClient.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                        .method(method)
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .expiry(expiryMinutes, TimeUnit.MINUTES)
+                        .build()
+        );
+    }
+
+    @Override
+    public Optional<Long> findObjectSize(String bucketName, String objectName) {
+        try {
+            return Optional.of(minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .build()
+            ).size());
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw new RuntimeException("Failed to stat %s: %s".formatted(objectName, e.getMessage()), e);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to stat %s: %s".formatted(objectName, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void downloadObject(String bucketName, String objectName, Path target) throws IOException {
+        try (InputStream object = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .build())) {
+            Files.copy(object, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new NoSuchFileException("%s/%s".formatted(bucketName, objectName));
+            }
+            throw new IOException("Failed to download %s: %s".formatted(objectName, e.getMessage()), e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to download %s: %s".formatted(objectName, e.getMessage()), e);
+        }
+    }
+
     @Override
     public void createPreview(InputStream inputStream, ByteArrayOutputStream outputStream) {
         try {
-            Thumbnails.of(inputStream)
-                    .size(1920, 1080)
-                    .outputQuality(0.85)
-                    .outputFormat("jpg")
-                    .toOutputStream(outputStream);
+            outputStream.write(previewRenderer.renderDefault(inputStream));
         } catch (IOException e) {
             log.error("Something went wrong when uploading image with preview.", e);
         }
     }
 
     @Override
-    public ByteArrayResource createZipArchive(String bucketName) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-        try(ZipOutputStream zos = new ZipOutputStream(baos)) {
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .recursive(true)
-                            .build()
-            );
+    public SortedMap<Integer, byte[]> createRenditions(InputStream input) throws IOException {
+        return previewRenderer.render(input);
+    }
 
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                String objectName = item.objectName();
-
-                if (objectName.contains(ORIGINAL_JPG)) {
-                    try(GetObjectResponse response = minioClient.getObject(
-                            GetObjectArgs.builder()
-                                    .bucket(bucketName)
-                                    .object(objectName)
-                                    .build()
-                    )) {
-                        ZipEntry zipEntry  = new ZipEntry(objectName);
-                        zos.putNextEntry(zipEntry );
-                        byte[] buffer = new byte[8192];
-                        int length;
-                        while ((length = response.read(buffer)) != -1) {
-                            zos.write(buffer, 0, length);
-                        }
-
-                        zos.closeEntry();
-                        log.info("Added to archive: {}", objectName);
-                    }
+    @Override
+    public void writeZipArchive(String archiveName, List<StoredOriginal> originals,
+                                OutputStream outputStream) throws Exception {
+        List<ZipArchiveAssembler.ZipSource> sources = new ArrayList<>();
+        Set<String> entryNames = new HashSet<>();
+        for (StoredOriginal original : originals) {
+            Long size = original.getSizeBytes();
+            if (size == null) {
+                // rows stored before sizes were recorded; an original no longer in storage is left out
+                Optional<Long> stored = findObjectSize(original.getBucket(), original.getObjectName());
+                if (stored.isEmpty()) {
+                    log.warn("Original {}/{} is missing from storage, leaving it out of archive {}",
+                            original.getBucket(), original.getObjectName(), archiveName);
+                    continue;
                 }
+                size = stored.get();
             }
-            zos.finish();
+            // originals reused from other sessions come from other buckets, where their names may repeat
+            String entryName = entryNames.add(original.getObjectName())
+                    ? original.getObjectName()
+                    : original.getBucket() + "_" + original.getObjectName();
+            sources.add(new ZipArchiveAssembler.ZipSource(entryName, original.getBucket(),
+                    original.getObjectName(), size));
         }
-        return new ByteArrayResource(baos.toByteArray());
+
+        zipArchiveAssembler.write(archiveName, sources, outputStream);
     }
 
     @Override
@@ -186,53 +394,26 @@ public class ImageServiceImpl implements ImageService {
 
     @Override
     public boolean isBucketExists(String bucketName) {
-        try {
-            return minioClient.bucketExists(
-                    BucketExistsArgs.builder()
-                            .bucket(bucketName)
-                            .build()
-            );
-        } catch (Exception e) {
-            log.error("Something went wrong when check bucket exists. {}", e.getMessage());
-            return false;
-        }
+        return bucketRegistry.exists(bucketName);
     }
 
     @Override
-    public void deleteImage(String bucketName, String fileName) {
+    public void deleteObjects(String bucketName, Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return;
+        }
+        // renditions of small sources share objects, so a name can come more than once
+        List<String> distinctNames = objectNames.stream().distinct().toList();
         try {
-            if (!isBucketExists(bucketName)) {
-                log.warn("Bucket {} does not exist", bucketName);
-                return;
-            }
-
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .recursive(true)
-                            .build()
-            );
-
-            for (Result<Item> result : results) {
-                Item item = result.get();
-
-                boolean contains = item.objectName().contains(fileName);
-
-                log.info("Checking if image {} ({}) has been deleted: {}", fileName, item.objectName(), contains);
-                if (contains) {
-                    minioClient.removeObject(
-                            RemoveObjectArgs.builder()
-                                    .bucket(bucketName)
-                                    .object(item.objectName())
-                                    .build()
-                    );
-                    log.info("Deleted object: {}/{}", bucketName, item.objectName());
-                }
-            }
-
+            removeObjects(bucketName, distinctNames.stream().map(DeleteObject::new).toList());
+            log.info("Deleted {} objects from bucket {}", distinctNames.size(), bucketName);
         } catch (Exception e) {
-            log.error("Failed to delete bucket {}: {}", bucketName, e.getMessage(), e);
-            throw new RuntimeException("Failed to delete bucket: " + bucketName, e);
+            log.error("Failed to delete objects from bucket {}: {}", bucketName, e.getMessage(), e);
+            throw new RuntimeException("Failed to delete objects from bucket %s: %s"
+                    .formatted(bucketName, e.getMessage()), e);
+        } finally {
+            // keys that failed are only fetched again; keys that went must not be served from disk
+            distinctNames.forEach(objectName -> previewDiskCache.invalidate(bucketName, objectName));
         }
     }
 
@@ -245,24 +426,13 @@ public class ImageServiceImpl implements ImageService {
                 return;
             }
 
-            // 1. Видалити всі об'єкти в bucket
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .recursive(true)
-                            .build()
-            );
-
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                minioClient.removeObject(
-                        RemoveObjectArgs.builder()
-                                .bucket(bucketName)
-                                .object(item.objectName())
-                                .build()
-                );
-                log.info("Deleted object: {}/{}", bucketName, item.objectName());
+            // 1. Видалити всі об'єкти в bucket: ключі невідомі, тому один перелік і видалення сторінками
+            List<DeleteObject> objects = new ArrayList<>();
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(bucketName).recursive(true).build())) {
+                objects.add(new DeleteObject(result.get().objectName()));
             }
+            removeObjects(bucketName, objects);
 
             // 2. Видалити сам bucket
             minioClient.removeBucket(
@@ -270,13 +440,33 @@ public class ImageServiceImpl implements ImageService {
                             .bucket(bucketName)
                             .build()
             );
+            bucketRegistry.removed(bucketName);
+            previewDiskCache.invalidateBucket(bucketName);
 
-            log.info("Deleted bucket: {}", bucketName);
+            log.info("Deleted bucket {} with {} objects", bucketName, objects.size());
 
         } catch (Exception e) {
             log.error("Failed to delete bucket {}: {}", bucketName, e.getMessage(), e);
-            throw new RuntimeException("Failed to delete bucket: " + bucketName, e);
+            throw new RuntimeException("Failed to delete bucket %s: %s".formatted(bucketName, e.getMessage()), e);
         }
     }
 
+    // one multi-object delete request per page; removeObjects is lazy and sends it while the results are read.
+    // Every page is sent, then the keys S3 refused to delete are reported together
+    private void removeObjects(String bucketName, List<DeleteObject> objects) throws Exception {
+        List<String> failed = new ArrayList<>();
+        for (int from = 0; from < objects.size(); from += DELETE_PAGE_SIZE) {
+            List<DeleteObject> page = objects.subList(from, Math.min(from + DELETE_PAGE_SIZE, objects.size()));
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucketName).objects(page).build())) {
+                DeleteError error = result.get();
+                log.error("Failed to delete object {}/{}: {}", bucketName, error.objectName(), error.message());
+                failed.add(error.objectName());
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IOException("Failed to delete %d of %d objects: %s"
+                    .formatted(failed.size(), objects.size(), String.join(", ", failed)));
+        }
+    }
 }
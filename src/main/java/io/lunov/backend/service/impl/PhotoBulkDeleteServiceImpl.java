@@ -0,0 +1,154 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.model.dto.photo.BulkDeleteResultDTO;
+import io.lunov.backend.model.entity.RetainedBucket;
+import io.lunov.backend.model.exception.SessionNotFoundException;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.PhotoRepository.StoredObject;
+import io.lunov.backend.repository.RetainedBucketRepository;
+import io.lunov.backend.repository.SessionRepository;
+import io.lunov.backend.service.ImageService;
+import io.lunov.backend.service.PhotoBulkDeleteService;
+import io.lunov.backend.service.PortfolioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes photos with a handful of set-based statements instead of loading and
+ * removing entities one by one. Photos still linked to another session are only
+ * unlinked; the rest lose their rows in the transaction and their storage objects
+ * once it has committed, so a rollback never leaves rows pointing at deleted objects.
+ * The bucket of a deleted session that other sessions still use is recorded and
+ * removed by a background check once no photo is stored in it anymore; so is a
+ * bucket that could not be deleted right away.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoBulkDeleteServiceImpl implements PhotoBulkDeleteService {
+
+    private final PhotoRepository photoRepository;
+    private final SessionRepository sessionRepository;
+    private final ImageService imageService;
+    private final TransactionTemplate transactionTemplate;
+    private final PortfolioService portfolioService;
+    private final RetainedBucketRepository retainedBucketRepository;
+
+    private static final String NOT_FOUND = "Session not found. ID: %s";
+
+    private record Deletion(int unlinked, int deleted, List<StoredObject> objects, boolean bucketInUse) {
+    }
+
+    @Override
+    public BulkDeleteResultDTO deletePhotos(UUID sessionId, Collection<UUID> photoIds) {
+        log.info("Bulk deleting {} photos from session {}", photoIds.size(), sessionId);
+        Set<UUID> ids = new HashSet<>(photoIds);
+
+        Deletion deletion = transactionTemplate.execute(status -> {
+            requireSession(sessionId);
+            // bumped while the links still exist, so sessions sharing a photo see the change too
+            sessionRepository.incrementContentVersionByPhotoIds(ids);
+            List<StoredObject> objects = photoRepository.findObjectsExclusiveToSession(sessionId, ids);
+            int deleted = photoRepository.deleteExclusiveToSession(sessionId, ids);
+            int unlinked = photoRepository.unlinkFromSession(sessionId, ids);
+            // bulk deletes are rare; telling portfolio sessions apart is not worth a query
+            portfolioService.evict();
+            return new Deletion(unlinked, deleted, objects, true);
+        });
+
+        removeObjects(deletion.objects());
+        return toResult(deletion);
+    }
+
+    @Override
+    public BulkDeleteResultDTO deleteSession(UUID sessionId) {
+        log.info("Bulk deleting session {}", sessionId);
+        String bucket = sessionId.toString();
+
+        Deletion deletion = transactionTemplate.execute(status -> {
+            requireSession(sessionId);
+            sessionRepository.incrementContentVersionOfSharingSessions(sessionId);
+            List<StoredObject> objects = photoRepository.findObjectsExclusiveToSession(sessionId);
+            int deleted = photoRepository.deleteExclusiveToSession(sessionId);
+            int unlinked = photoRepository.unlinkAllFromSession(sessionId);
+            // shared photos uploaded into this session still serve their objects from its bucket
+            boolean bucketInUse = photoRepository.countByBucket(bucket) > 0;
+            if (bucketInUse) {
+                retainedBucketRepository.save(RetainedBucket.builder().name(bucket).build());
+            }
+            photoRepository.clearPrimarySession(sessionId);
+            sessionRepository.deleteDirectlyById(sessionId);
+            portfolioService.evict();
+            return new Deletion(unlinked, deleted, objects, bucketInUse);
+        });
+
+        if (deletion.bucketInUse()) {
+            removeObjects(deletion.objects());
+        } else {
+            // the bucket goes as a whole, only objects kept in other buckets are removed by key
+            removeObjects(deletion.objects().stream()
+                    .filter(object -> !bucket.equals(object.getBucket()))
+                    .toList());
+            try {
+                imageService.deleteBucket(bucket);
+            } catch (Exception e) {
+                // no photo is stored in it anymore, so the background check deletes it on its next run
+                log.error("Failed to delete bucket {}, retrying in the background: {}", bucket, e.getMessage());
+                retainedBucketRepository.save(RetainedBucket.builder().name(bucket).build());
+            }
+        }
+        return toResult(deletion);
+    }
+
+    // the last shared photo of a retained bucket may go through any delete path, so they are polled
+    @Scheduled(fixedDelayString = "${photo.retained-bucket.check-interval:PT10M}")
+    public void deleteReleasedBuckets() {
+        for (RetainedBucket retained : retainedBucketRepository.findAll()) {
+            if (photoRepository.countByBucket(retained.getName()) > 0) {
+                continue;
+            }
+            // the session is gone, so nothing can store a new photo in the bucket anymore
+            try {
+                imageService.deleteBucket(retained.getName());
+                retainedBucketRepository.deleteById(retained.getName());
+                log.info("Deleted bucket {} retained since {}", retained.getName(), retained.getRetainedAt());
+            } catch (Exception e) {
+                log.error("Failed to delete retained bucket {}: {}", retained.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private void requireSession(UUID sessionId) {
+        if (!sessionRepository.existsById(sessionId)) {
+            throw new SessionNotFoundException(NOT_FOUND.formatted(sessionId));
+        }
+    }
+
+    private void removeObjects(List<StoredObject> objects) {
+        Map<String, List<String>> objectNamesByBucket = objects.stream()
+                .collect(Collectors.groupingBy(StoredObject::getBucket,
+                        Collectors.mapping(StoredObject::getObjectName, Collectors.toList())));
+
+        objectNamesByBucket.forEach((bucket, objectNames) -> {
+            try {
+                imageService.deleteObjects(bucket, objectNames);
+            } catch (Exception e) {
+                // rows are gone already; leftover objects are unreachable and only cost storage
+                log.error("Failed to delete {} objects from bucket {}", objectNames.size(), bucket, e);
+            }
+        });
+    }
+
+    private BulkDeleteResultDTO toResult(Deletion deletion) {
+        return BulkDeleteResultDTO.builder()
+                .unlinked(deletion.unlinked())
+                .deleted(deletion.deleted())
+                .build();
+    }
+}
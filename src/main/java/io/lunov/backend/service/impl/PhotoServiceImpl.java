@@ -2,122 +2,389 @@ package io.lunov.backend.service.impl;
 
 import io.lunov.backend.model.dto.error.PhotoNotFoundException;
 import io.lunov.backend.model.dto.image.ImageUploadResponse;
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
 import io.lunov.backend.model.dto.photo.PhotoUploadDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
 import io.lunov.backend.model.dto.session.SessionCreateDTO;
 import io.lunov.backend.model.dto.session.SessionInfoDTO;
 import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoRendition;
+import io.lunov.backend.model.entity.PhotoStatus;
 import io.lunov.backend.model.entity.Session;
 import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.repository.PhotoBatchRepository;
 import io.lunov.backend.repository.PhotoRepository;
 import io.lunov.backend.service.ImageService;
 import io.lunov.backend.service.PhotoService;
+import io.lunov.backend.service.PortfolioService;
+import io.lunov.backend.service.PreviewService;
 import io.lunov.backend.service.SessionService;
 import io.lunov.backend.util.mapper.PhotoMapper;
-import lombok.RequiredArgsConstructor;
+import io.lunov.backend.util.pagination.KeysetPaging;
+import io.lunov.backend.util.pagination.PageCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static io.lunov.backend.service.impl.ImageServiceImpl.ORIGINAL_JPG;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PhotoServiceImpl implements PhotoService {
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final String DUPLICATE_DELETED =
+            "The stored photo this upload duplicates was deleted meanwhile, upload it again";
 
     private final ImageService imageService;
     private final SessionService sessionService;
     private final PhotoRepository repository;
+    private final PhotoBatchRepository batchRepository;
     private final PhotoMapper mapper;
-
+    private final ExecutorService uploadExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final PreviewService previewService;
+    private final PortfolioService portfolioService;
+    private final KeysetPaging paging;
+    private final Counter dedupHits;
+    private final Counter dedupBytes;
+
+    @Value("${preview.async:true}")
+    private boolean previewAsync;
+
+    public PhotoServiceImpl(ImageService imageService,
+                            SessionService sessionService,
+                            PhotoRepository repository,
+                            PhotoBatchRepository batchRepository,
+                            PhotoMapper mapper,
+                            ExecutorService uploadExecutor,
+                            TransactionTemplate transactionTemplate,
+                            PreviewService previewService,
+                            PortfolioService portfolioService,
+                            KeysetPaging paging,
+                            MeterRegistry meterRegistry) {
+        this.imageService = imageService;
+        this.sessionService = sessionService;
+        this.repository = repository;
+        this.batchRepository = batchRepository;
+        this.mapper = mapper;
+        this.uploadExecutor = uploadExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.previewService = previewService;
+        this.portfolioService = portfolioService;
+        this.paging = paging;
+        this.dedupHits = Counter.builder("photo.upload.dedup.hits")
+                .description("Uploads whose original was already stored")
+                .register(meterRegistry);
+        this.dedupBytes = Counter.builder("photo.upload.dedup.bytes")
+                .description("Original bytes not stored again because an identical original was already stored")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
 
     @Override
     public PhotoInfoDTO save(UUID sessionId, PhotoUploadDTO dto) {
+        sessionService.getById(sessionId);
+
+        PendingUpload upload = store(sessionId, dto);
+        if (!upload.response().isSuccess()) {
+            throw new IllegalStateException("Failed to upload photo: %s".formatted(upload.response().getError()));
+        }
+
+        Map<PendingUpload, PersistedPhoto> saved = transactionTemplate.execute(status -> persist(sessionId, List.of(upload)));
+        afterPersist(sessionId, saved);
+        if (!saved.containsKey(upload)) {
+            throw new IllegalStateException(DUPLICATE_DELETED);
+        }
+        return saved.get(upload).photo();
+    }
+
+    @Override
+    public List<PhotoUploadResultDTO> saveMultiple(UUID sessionId, List<MultipartFile> files) {
+        long started = System.nanoTime();
+        // fail fast before anything is sent to storage
+        sessionService.getById(sessionId);
+
+        // storage uploads and previews run in parallel, outside of any DB transaction
+        List<CompletableFuture<PendingUpload>> futures = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> upload(sessionId, file), uploadExecutor))
+                .toList();
+        List<PendingUpload> uploads = futures.stream().map(CompletableFuture::join).toList();
+
+        List<PendingUpload> stored = uploads.stream()
+                .filter(upload -> upload.response().isSuccess())
+                .toList();
+
+        Map<PendingUpload, PersistedPhoto> saved = new HashMap<>();
+        String persistError = null;
+        if (!stored.isEmpty()) {
+            try {
+                saved = transactionTemplate.execute(status -> persist(sessionId, stored));
+            } catch (Exception e) {
+                log.error("Failed to save {} photos of session {}: {}", stored.size(), sessionId, e.getMessage());
+                stored.stream()
+                        .filter(PendingUpload::stored)
+                        .forEach(upload -> discard(sessionId, upload));
+                persistError = "Failed to save photo: %s".formatted(e.getMessage());
+            }
+            afterPersist(sessionId, saved);
+        }
+
+        List<PhotoUploadResultDTO> results = new ArrayList<>();
+        for (PendingUpload upload : uploads) {
+            PersistedPhoto photo = saved.get(upload);
+            results.add(PhotoUploadResultDTO.builder()
+                    .originalFilename(upload.file().getOriginalFilename())
+                    .success(photo != null)
+                    .error(photo != null ? null
+                            : upload.response().isSuccess()
+                            ? Objects.requireNonNullElse(persistError, DUPLICATE_DELETED)
+                            : upload.response().getError())
+                    .deduplicated(photo != null && photo.deduplicated())
+                    .photo(photo != null ? photo.photo() : null)
+                    .build());
+        }
+
+        log.info("Uploaded {}/{} photos to session {} in {} ms", saved.size(), files.size(), sessionId,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return results;
+    }
+
+    private PendingUpload upload(UUID sessionId, MultipartFile file) {
+        String fileName = "photo_" + UUID.randomUUID().toString().substring(0, 8);
+        PhotoUploadDTO payload = PhotoUploadDTO.builder()
+                .file(file)
+                .fileName(fileName)
+                .build();
+
+        PendingUpload upload = store(sessionId, payload);
+        if (!upload.response().isSuccess()) {
+            log.error("Failed to upload file {}: {}", file.getOriginalFilename(), upload.response().getError());
+        }
+        return upload;
+    }
+
+    private Map<PendingUpload, PersistedPhoto> persist(UUID sessionId, List<PendingUpload> uploads) {
         Session session = sessionService.getById(sessionId);
 
-        ImageUploadResponse response = imageService.uploadImageWithPreview(sessionId, dto);
+        // duplicates are matched against stored photos and against earlier files of the same batch
+        Map<String, Photo> byHash = new HashMap<>();
+        Map<PendingUpload, Photo> photos = new LinkedHashMap<>();
+        Set<PendingUpload> duplicates = new HashSet<>();
+        Set<UUID> linked = new HashSet<>();
+        List<Photo> created = new ArrayList<>();
+        for (PendingUpload upload : uploads) {
+            String hash = upload.response().getContentHash();
+            Photo existing = hash == null ? null : byHash.computeIfAbsent(hash,
+                    key -> repository.findFirstByContentHashOrderByCreatedAt(key).orElse(null));
+
+            if (existing == null && !upload.stored()) {
+                // the photo matched before the upload was skipped is gone; nothing of this file was stored
+                log.warn("Photo with hash {} was deleted while {} was uploaded", hash, upload.fileName());
+                continue;
+            }
+            if (existing != null) {
+                // a duplicate within this batch is already linked to the session by the batch insert;
+                // only the inverse side is updated here, for the DTO, the link row is written by the batch
+                if (!created.contains(existing) && !existing.getSessions().contains(session)) {
+                    existing.getSessions().add(session);
+                    linked.add(existing.getId());
+                }
+                photos.put(upload, existing);
+                duplicates.add(upload);
+                continue;
+            }
+
+            Photo photo = buildPhoto(session, upload.fileName(), upload.response());
+            photo.getSessions().add(session);
+            photos.put(upload, photo);
+            created.add(photo);
+            if (hash != null) {
+                byHash.put(hash, photo);
+            }
+        }
+        // new rows and links go through JDBC batches; the session's photo collection is left untouched
+        batchRepository.insert(sessionId, created, linked);
+        sessionService.incrementContentVersion(sessionId);
+        // photo lists of other sessions name the sessions of each photo
+        sessionService.incrementContentVersionByPhotoIds(linked);
+        if (session.getAccessType() == SessionAccessType.PUBLIC) {
+            portfolioService.evict();
+        }
 
-        Photo photo = Photo.builder()
-                .filename(dto.getFileName())
+        Map<PendingUpload, PersistedPhoto> result = new HashMap<>();
+        photos.forEach((upload, photo) ->
+                result.put(upload, new PersistedPhoto(mapper.toDto(photo), duplicates.contains(upload))));
+        return result;
+    }
+
+    // runs after commit: drops the copies of duplicates found only once stored and queues previews of new photos
+    private void afterPersist(UUID sessionId, Map<PendingUpload, PersistedPhoto> saved) {
+        List<PhotoInfoDTO> created = new ArrayList<>();
+        saved.forEach((upload, photo) -> {
+            if (!photo.deduplicated()) {
+                created.add(photo.photo());
+                return;
+            }
+            if (upload.stored()) {
+                discard(sessionId, upload);
+            }
+            dedupHits.increment();
+            if (upload.file() != null) {
+                dedupBytes.increment(upload.file().getSize());
+            }
+            log.info("Upload {} duplicates photo {}, reusing its stored objects", upload.fileName(),
+                    photo.photo().getId());
+        });
+        requestPreviews(sessionId, created);
+    }
+
+    @Override
+    public List<PhotoInfoDTO> registerStoredOriginals(UUID sessionId, Map<String, Long> sizesByFileName) {
+        String bucketName = sessionId.toString();
+        List<PendingUpload> uploads = sizesByFileName.entrySet().stream()
+                .map(entry -> new PendingUpload(null, entry.getKey(), ImageUploadResponse.builder()
+                        .originalFileName(entry.getKey() + ORIGINAL_JPG)
+                        .originalUrl(imageService.getPublicUrl(bucketName, entry.getKey() + ORIGINAL_JPG))
+                        .originalSize(entry.getValue())
+                        .renditions(List.of())
+                        .isSuccess(true)
+                        .build(), true))
+                .toList();
+
+        Map<PendingUpload, PersistedPhoto> saved = transactionTemplate.execute(status -> persist(sessionId, uploads));
+        afterPersist(sessionId, saved);
+        log.info("Registered {} stored originals in session {}", saved.size(), sessionId);
+        return uploads.stream().map(upload -> saved.get(upload).photo()).toList();
+    }
+
+    private Photo buildPhoto(Session session, String fileName, ImageUploadResponse response) {
+        List<PhotoRendition> renditions = mapper.toRenditions(
+                Optional.ofNullable(response.getRenditions()).orElse(List.of()));
+
+        return Photo.builder()
+                .filename(fileName)
+                .bucket(session.getId().toString())
+                .objectName(response.getOriginalFileName())
+                .contentHash(response.getContentHash())
+                .sizeBytes(response.getOriginalSize())
                 .primarySession(session)  // Keep reference to original session
                 .originalUrl(response.getOriginalUrl())
                 .previewUrl(response.getPreviewUrl())
+                .renditions(renditions)
+                .status(renditions.isEmpty() ? PhotoStatus.PROCESSING : PhotoStatus.READY)
                 .createdAt(Instant.now())
                 .sessions(new ArrayList<>())
                 .build();
+    }
 
-        // Add to session
-        session.addPhoto(photo);
-
-        Photo savedPhoto = repository.save(photo);
-        return mapper.toDto(savedPhoto);
-    }
-
-//    @Override
-//    public List<PhotoInfoDTO> saveMultiple(UUID sessionId, List<MultipartFile> files) {
-//        return files.parallelStream()
-//                .map(file -> {
-//                    String fileName = "photo_" + UUID.randomUUID().toString().substring(0, 8);
-//
-//                    PhotoUploadDTO payload = PhotoUploadDTO.builder()
-//                            .file(file)
-//                            .fileName(fileName)
-//                            .build();
-//
-//                    try {
-//                        return save(sessionId, payload);
-//                    } catch (Exception e) {
-//                        log.error("Failed to upload file {}: {}",
-//                                file.getOriginalFilename(), e.getMessage());
-//                        return null;
-//                    }
-//                })
-//                .filter(Objects::nonNull)
-//                .toList();
-//    }
+    // no row refers to the copy; one that cannot be deleted now stays until the session's bucket is deleted
+    private void discard(UUID sessionId, PendingUpload upload) {
+        try {
+            imageService.deleteObjects(sessionId.toString(), objectNames(upload.response()));
+        } catch (RuntimeException e) {
+            log.error("Failed to discard the stored copy of {}: {}", upload.fileName(), e.getMessage());
+        }
+    }
 
-    @Override
-    @Transactional
-    public List<PhotoInfoDTO> saveMultiple(UUID sessionId, List<MultipartFile> files) {
-        Session session = sessionService.getById(sessionId);
-        session.getPhotos().size();
-
-        return files.stream() // Use sequential stream instead of parallel
-                .map(file -> {
-                    String fileName = "photo_" + UUID.randomUUID().toString().substring(0, 8);
-
-                    PhotoUploadDTO payload = PhotoUploadDTO.builder()
-                            .file(file)
-                            .fileName(fileName)
-                            .build();
-
-                    try {
-                        return save(sessionId, payload);
-                    } catch (Exception e) {
-                        log.error("Failed to upload file {}: {}",
-                                file.getOriginalFilename(), e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .toList();
+    // the keys an upload wrote, so a discarded upload is removed without listing the bucket
+    private static List<String> objectNames(ImageUploadResponse response) {
+        List<String> names = new ArrayList<>();
+        names.add(response.getOriginalFileName());
+        Optional.ofNullable(response.getRenditions()).orElse(List.of())
+                .forEach(rendition -> names.add(rendition.getFileName()));
+        return names;
+    }
+
+    // an original already stored is not sent again: the file is hashed locally first, and on a match
+    // the upload carries only its hash, for persist to link the stored photo
+    private PendingUpload store(UUID sessionId, PhotoUploadDTO payload) {
+        MultipartFile file = payload.getFile();
+        String hash = contentHash(file);
+        if (hash != null && repository.existsByContentHash(hash)) {
+            return new PendingUpload(file, payload.getFileName(), ImageUploadResponse.builder()
+                    .contentHash(hash)
+                    .originalSize(file.getSize())
+                    .renditions(List.of())
+                    .isSuccess(true)
+                    .build(), false);
+        }
+        ImageUploadResponse response = previewAsync
+                ? imageService.uploadOriginal(sessionId, payload)
+                : imageService.uploadImageWithPreview(sessionId, payload);
+        return new PendingUpload(file, payload.getFileName(), response, true);
+    }
+
+    // photos stored without renditions get them from the preview workers
+    private void requestPreviews(UUID sessionId, Collection<PhotoInfoDTO> photos) {
+        photos.stream()
+                .filter(photo -> PhotoStatus.PROCESSING.name().equals(photo.getStatus()))
+                .forEach(photo -> previewService.requestPreview(photo.getId(), sessionId.toString(), photo.getFilename()));
+    }
+
+    // hex SHA-256 of the file, as ImageService reports it for stored originals; null if it cannot be read
+    private static String contentHash(MultipartFile file) {
+        try (InputStream input = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("Failed to hash {} before upload: {}", file.getOriginalFilename(), e.getMessage());
+            return null;
+        }
+    }
+
+    // stored is false when an identical original was already stored and the file was never sent
+    private record PendingUpload(MultipartFile file, String fileName, ImageUploadResponse response, boolean stored) {
+    }
+
+    private record PersistedPhoto(PhotoInfoDTO photo, boolean deduplicated) {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PhotoInfoDTO> findAllBySessionId(UUID sessionId) {
         var response = repository.findBySessionId(sessionId);
         return response.stream().map(mapper::toDto).toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<PhotoInfoDTO> findPageBySessionId(UUID sessionId, String cursor, Integer size) {
+        int pageSize = paging.resolveSize(size);
+        List<Photo> photos;
+        if (cursor == null) {
+            photos = repository.findFirstPageBySessionId(sessionId, paging.limitFor(pageSize));
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            photos = repository.findPageBySessionIdAfter(sessionId, after.createdAt(), after.id(),
+                    paging.limitFor(pageSize));
+        }
+        return paging.toPage(photos, pageSize, mapper::toDto,
+                photo -> new PageCursor(photo.getCreatedAt(), photo.getId()));
+    }
+
     @Override
     public Photo getById(UUID id) {
         return repository.findById(id).orElseThrow(
@@ -127,6 +394,7 @@ public class PhotoServiceImpl implements PhotoService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PhotoInfoDTO findById(UUID id) {
            var photo = repository.findById(id).orElseThrow(() -> new PhotoNotFoundException("id - %s".formatted(id)));
            return mapper.toDto(photo);
@@ -170,6 +438,9 @@ public class PhotoServiceImpl implements PhotoService {
         if (!portfolioSession.getPhotos().contains(photo)) {
             portfolioSession.addPhoto(photo);
             sessionService.updateEntity(portfolioSession);
+            sessionService.incrementContentVersion(portfolioSession.getId());
+            sessionService.incrementContentVersionByPhotoIds(List.of(photoId));
+            portfolioService.evict();
         } else {
             log.info("Photo {} already exists in portfolio {}", photoId, contentType);
         }
@@ -187,19 +458,24 @@ public class PhotoServiceImpl implements PhotoService {
 
         Photo photo = getById(photoId);
         Session session = sessionService.getById(sessionId);
+        // every session listing the photo, this one included, while the link is still stored
+        sessionService.incrementContentVersionByPhotoIds(List.of(photoId));
 
         // Remove photo from this specific session
         session.removePhoto(photo);
         sessionService.updateEntity(session);
+        if (session.getAccessType() == SessionAccessType.PUBLIC) {
+            portfolioService.evict();
+        }
 
-        // If photo is not in any other sessions and this was its primary session, delete it
-        if (photo.getSessions().isEmpty() ||
-                (photo.getPrimarySession() != null &&
-                        photo.getPrimarySession().getId().equals(sessionId))) {
+        // Objects may be shared by duplicate uploads in other sessions, so delete only the last reference
+        if (photo.getSessions().isEmpty()) {
 
-            // Delete from storage
-            if (imageService.isBucketExists(sessionId.toString())) {
-                imageService.deleteImage(sessionId.toString(), fileName);
+            // Delete from storage; the objects live in the bucket of the session that first stored them.
+            // A failed delete rolls the row back, so deleting the photo again retries the keys left
+            String bucketName = Objects.requireNonNullElse(photo.getBucket(), sessionId.toString());
+            if (imageService.isBucketExists(bucketName)) {
+                imageService.deleteObjects(bucketName, photo.objectNames());
             }
 
             // Delete from database
@@ -0,0 +1,105 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.config.CacheConfig;
+import io.lunov.backend.model.dto.portfolio.PortfolioDTO;
+import io.lunov.backend.model.dto.session.SessionInfoDTO;
+import io.lunov.backend.model.entity.Session;
+import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.model.entity.SessionContentType;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.SessionRepository;
+import io.lunov.backend.service.PortfolioService;
+import io.lunov.backend.util.mapper.PhotoMapper;
+import io.lunov.backend.util.mapper.SessionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Read model of the public portfolio. Anonymous page views are served from the
+ * portfolio caches; every write that can change a public session or its photos
+ * calls {@link #evict()}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PortfolioServiceImpl implements PortfolioService {
+
+    private final SessionRepository sessionRepository;
+    private final PhotoRepository photoRepository;
+    private final SessionMapper sessionMapper;
+    private final PhotoMapper photoMapper;
+    private final CacheManager cacheManager;
+
+    // part of every cache key and bumped after each committed change: a read that started before the
+    // change and finishes after the eviction caches its old result under a key no one asks for anymore
+    private final AtomicLong generation = new AtomicLong();
+
+    public long generation() {
+        return generation.get();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PORTFOLIO_ALBUMS, key = "#root.target.generation()")
+    public List<SessionInfoDTO> findAlbums() {
+        log.info("Loading portfolio albums");
+        return sessionRepository.findAllByAccessType(SessionAccessType.PUBLIC).stream()
+                .map(sessionMapper::toDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PORTFOLIO, key = "#root.target.generation() + ':' + #contentType")
+    public PortfolioDTO findByContentType(SessionContentType contentType) {
+        log.info("Loading portfolio: {}", contentType);
+        Optional<Session> session = sessionRepository.findByContentTypeAndAccessType(contentType, SessionAccessType.PUBLIC);
+        return PortfolioDTO.builder()
+                .sessionId(session.map(Session::getId).orElse(null))
+                .name(session.map(Session::getName).orElse(null))
+                .contentType(contentType.name())
+                .photos(photoRepository.findByPortfolio(contentType, SessionAccessType.PUBLIC).stream()
+                        .map(photoMapper::toDto)
+                        .toList())
+                .build();
+    }
+
+    // Curation is rare, so any change drops every entry instead of tracking the type it touched.
+    // Inside a transaction the caches are dropped after commit; dropping them earlier would let a
+    // concurrent view cache the old state again before the change becomes visible.
+    @Override
+    public void evict() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        log.debug("Evicting portfolio caches");
+        generation.incrementAndGet();
+        Stream.of(CacheConfig.PORTFOLIO, CacheConfig.PORTFOLIO_ALBUMS)
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(Cache::invalidate);
+    }
+}
@@ -0,0 +1,150 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadCompleteDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadRequestDTO;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.service.ImageService;
+import io.lunov.backend.service.PhotoService;
+import io.lunov.backend.service.PresignedUploadService;
+import io.lunov.backend.service.SessionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static io.lunov.backend.service.impl.ImageServiceImpl.ORIGINAL_JPG;
+
+/**
+ * Lets clients PUT originals straight into the session bucket. The API only signs
+ * the URLs and, once the client reports the PUTs as done, checks the objects and
+ * registers them as photos, so the original bytes never pass through this service.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PresignedUploadServiceImpl implements PresignedUploadService {
+
+    // only names handed out by createUploads may be registered
+    private static final Pattern FILE_NAME = Pattern.compile("photo_[0-9a-f]{8}");
+    private static final String ALREADY_REGISTERED = "Photo is already registered";
+
+    private final ImageService imageService;
+    private final SessionService sessionService;
+    private final PhotoService photoService;
+    private final PhotoRepository photoRepository;
+
+    @Value("${upload.presigned.expiry-minutes:60}")
+    private int expiryMinutes;
+
+    @Value("${upload.presigned.max-file-size:2GB}")
+    private DataSize maxFileSize;
+
+    @Override
+    public List<PresignedUploadDTO> createUploads(UUID sessionId, PresignedUploadRequestDTO dto) {
+        sessionService.getById(sessionId);
+        String bucketName = sessionId.toString();
+        Instant expiresAt = Instant.now().plus(expiryMinutes, ChronoUnit.MINUTES);
+
+        return dto.getOriginalFilenames().stream()
+                .map(originalFilename -> {
+                    String fileName = "photo_" + UUID.randomUUID().toString().substring(0, 8);
+                    return PresignedUploadDTO.builder()
+                            .originalFilename(originalFilename)
+                            .fileName(fileName)
+                            .uploadUrl(imageService.getPresignedUploadUrl(bucketName, fileName + ORIGINAL_JPG, expiryMinutes))
+                            .expiresAt(expiresAt)
+                            .build();
+                })
+                .toList();
+    }
+
+    @Override
+    public List<PhotoUploadResultDTO> complete(UUID sessionId, PresignedUploadCompleteDTO dto) {
+        sessionService.getById(sessionId);
+        String bucketName = sessionId.toString();
+
+        Map<String, String> errors = new HashMap<>();
+        Map<String, Long> stored = new LinkedHashMap<>();
+        for (String fileName : new LinkedHashSet<>(dto.getFileNames())) {
+            String error = verify(bucketName, fileName, stored);
+            if (error != null) {
+                log.warn("Rejected direct upload {} in session {}: {}", fileName, sessionId, error);
+                errors.put(fileName, error);
+            }
+        }
+
+        Map<String, PhotoInfoDTO> photos = new HashMap<>();
+        if (!stored.isEmpty()) {
+            try {
+                register(sessionId, stored, photos);
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent completion registered one of the names after it was checked;
+                // the others are registered one by one
+                log.warn("Direct uploads in session {} were registered concurrently, retrying one by one", sessionId);
+                stored.forEach((fileName, size) -> {
+                    try {
+                        register(sessionId, Map.of(fileName, size), photos);
+                    } catch (DataIntegrityViolationException duplicate) {
+                        errors.put(fileName, ALREADY_REGISTERED);
+                    }
+                });
+            }
+        }
+
+        return dto.getFileNames().stream()
+                .distinct()
+                .map(fileName -> PhotoUploadResultDTO.builder()
+                        .originalFilename(fileName)
+                        .success(photos.containsKey(fileName))
+                        .error(errors.get(fileName))
+                        .photo(photos.get(fileName))
+                        .build())
+                .toList();
+    }
+
+    private void register(UUID sessionId, Map<String, Long> stored, Map<String, PhotoInfoDTO> photos) {
+        List<PhotoInfoDTO> registered = photoService.registerStoredOriginals(sessionId, stored);
+        List<String> fileNames = List.copyOf(stored.keySet());
+        for (int i = 0; i < fileNames.size(); i++) {
+            photos.put(fileNames.get(i), registered.get(i));
+        }
+    }
+
+    // records the size of a valid upload in stored, or returns why it was rejected
+    private String verify(String bucketName, String fileName, Map<String, Long> stored) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            return "Unknown file name";
+        }
+        // cheap early answer; uk_photo_bucket_filename decides when two completions race
+        if (photoRepository.existsByBucketAndFilename(bucketName, fileName)) {
+            return ALREADY_REGISTERED;
+        }
+
+        Optional<Long> size = imageService.findObjectSize(bucketName, fileName + ORIGINAL_JPG);
+        if (size.isEmpty() || size.get() == 0) {
+            return "Photo was not uploaded";
+        }
+        // a presigned PUT cannot limit the body size, so oversized objects are removed afterwards
+        if (size.get() > maxFileSize.toBytes()) {
+            try {
+                imageService.deleteObjects(bucketName, List.of(fileName + ORIGINAL_JPG));
+            } catch (RuntimeException e) {
+                // never registered, so it stays unreachable until the session's bucket is deleted
+                log.error("Failed to delete oversized upload {} in bucket {}: {}", fileName, bucketName, e.getMessage());
+            }
+            return "Photo exceeds %s".formatted(maxFileSize);
+        }
+        stored.put(fileName, size.get());
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.model.dto.error.PhotoNotFoundException;
+import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.PhotoRepository.StoredObject;
+import io.lunov.backend.service.ImageService;
+import io.lunov.backend.service.PreviewDeliveryService;
+import io.lunov.backend.util.http.RangeFileWriter;
+import io.lunov.backend.util.storage.PreviewDiskCache;
+import io.lunov.backend.util.storage.PreviewDiskCache.CachedFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Serves the default-width rendition of a photo through the application, so previews
+ * of private sessions need no public bucket policy. A photo listed by a public session
+ * is served to anyone; otherwise the request has to carry the access code of a session
+ * listing it, and the response may only be kept by the client's own cache. Rendition
+ * bytes never change for a key, which is what allows the disk cache and the immutable
+ * Cache-Control.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreviewDeliveryServiceImpl implements PreviewDeliveryService {
+
+    private final PhotoRepository photoRepository;
+    private final ImageService imageService;
+    private final PreviewRenderer previewRenderer;
+    private final PreviewDiskCache previewDiskCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${preview.cache.max-age:P365D}")
+    private Duration maxAge;
+
+    @Override
+    public void servePreview(UUID photoId, String accessCode, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // a photo the request may not see is answered like a missing one, so ids cannot be probed
+        SessionAccessType access = photoRepository.findAccessType(photoId, accessCode)
+                .map(SessionAccessType::valueOf)
+                .orElseThrow(() -> new PhotoNotFoundException(photoId.toString()));
+        StoredObject preview = photoRepository.findRendition(photoId, previewRenderer.getDefaultWidth())
+                .orElseThrow(() -> new PhotoNotFoundException(photoId.toString()));
+
+        CachedFile file;
+        try {
+            file = previewDiskCache.get(preview.getBucket(), preview.getObjectName(),
+                    target -> imageService.downloadObject(preview.getBucket(), preview.getObjectName(), target));
+        } catch (NoSuchFileException e) {
+            log.warn("Preview {} of photo {} is missing in storage", preview.getObjectName(), photoId);
+            throw new PhotoNotFoundException(photoId.toString());
+        }
+
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).immutable();
+        cacheControl = access == SessionAccessType.PUBLIC ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        long sent = RangeFileWriter.write(file.path(), file.size(), request, response);
+        meterRegistry.counter("preview.bytes.served").increment(sent);
+    }
+}
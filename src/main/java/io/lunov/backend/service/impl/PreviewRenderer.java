@@ -0,0 +1,201 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.model.exception.UnreadableImageException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds the rendition ladder of a photo. The source is decoded once and every rendition
+ * is downscaled from the previous, larger one.
+ * <p>
+ * Decoding reads the dimensions from the header first and lets the decoder skip pixels
+ * (source subsampling), so a 50 MP camera JPEG is never fully materialized in memory:
+ * the decoded image holds at most {@value #MAX_DECODED_PIXEL_RATIO} times the pixels of
+ * the largest rendition.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PreviewRenderer {
+
+    public static final int MAX_DECODED_PIXEL_RATIO = 2;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${preview.renditions:320,800,1920,2560}")
+    private List<Integer> renditionWidths;
+
+    @Value("${preview.default-width:1920}")
+    private int defaultWidth;
+
+    @Value("${preview.quality:0.85}")
+    private double quality;
+
+    public SortedMap<Integer, byte[]> render(InputStream input) throws IOException {
+        BufferedImage source = decode(input);
+
+        SortedMap<Integer, byte[]> renditions = new TreeMap<>();
+        BufferedImage current = source;
+        byte[] encoded = null;
+        for (int width : renditionWidths.stream().sorted(Comparator.reverseOrder()).toList()) {
+            if (Math.max(current.getWidth(), current.getHeight()) > width) {
+                current = Thumbnails.of(current)
+                        .size(width, width)
+                        .asBufferedImage();
+                encoded = null;
+            }
+            // widths the image is already smaller than get the very same array
+            if (encoded == null) {
+                encoded = encode(current);
+            }
+            renditions.put(width, encoded);
+        }
+        return renditions;
+    }
+
+    public byte[] renderDefault(InputStream input) throws IOException {
+        SortedMap<Integer, byte[]> renditions = render(input);
+        return renditions.getOrDefault(getDefaultWidth(), renditions.get(renditions.lastKey()));
+    }
+
+    public int getDefaultWidth() {
+        return renditionWidths.contains(defaultWidth) ? defaultWidth : getLargestWidth();
+    }
+
+    // a source that fails to deliver its bytes is rethrown as is, only data the decoders reject is unreadable
+    public BufferedImage decode(InputStream input) throws IOException {
+        SourceInputStream source = new SourceInputStream(input);
+        try {
+            return decodeImage(source);
+        } catch (IOException e) {
+            if (source.failure != null) {
+                throw source.failure;
+            }
+            throw e instanceof UnreadableImageException ? e : new UnreadableImageException(e.getMessage(), e);
+        }
+    }
+
+    private BufferedImage decodeImage(InputStream input) throws IOException {
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(input)) {
+            // decoders probing the format swallow read errors, which decode() still sees on the source
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new UnreadableImageException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int subsampling = subsamplingFor(width, height, getLargestWidth());
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                long decodedBytes = sizeInBytes(image);
+                meterRegistry.summary("preview.decode.bytes").record(decodedBytes);
+                log.debug("Decoded {}x{} source as {}x{} (subsampling {}): {} KB instead of {} KB",
+                        width, height, image.getWidth(), image.getHeight(), subsampling,
+                        decodedBytes / 1024, decodedBytes * subsampling * subsampling / 1024);
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // smallest step that keeps the decoded square of the long edge within the bound; sources a little over
+    // sqrt(2) times the target therefore decode somewhat below it, down to about 0.7 of the target
+    public static int subsamplingFor(int width, int height, int targetLongEdge) {
+        int longEdge = Math.max(width, height);
+        long maxPixels = (long) MAX_DECODED_PIXEL_RATIO * targetLongEdge * targetLongEdge;
+        int subsampling = 1;
+        // ImageIO keeps the first pixel of every step, so a partial step still decodes one
+        while ((long) Math.ceilDiv(longEdge, subsampling) * Math.ceilDiv(longEdge, subsampling) > maxPixels) {
+            subsampling++;
+        }
+        return subsampling;
+    }
+
+    public static long sizeInBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private int getLargestWidth() {
+        return renditionWidths.stream()
+                .max(Integer::compareTo)
+                .orElseThrow();
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Thumbnails.of(image)
+                .scale(1.0)
+                .outputQuality(quality)
+                .outputFormat("jpg")
+                .toOutputStream(output);
+        return output.toByteArray();
+    }
+
+    private static final class SourceInputStream extends FilterInputStream {
+
+        private IOException failure;
+
+        SourceInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return super.skip(n);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.lunov.backend.service.impl;
+
+import io.lunov.backend.config.RabbitConfig;
+import io.lunov.backend.model.dto.image.RenditionDTO;
+import io.lunov.backend.model.dto.photo.PreviewRequestMessage;
+import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoStatus;
+import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.model.exception.UnreadableImageException;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.SessionRepository;
+import io.lunov.backend.service.ImageService;
+import io.lunov.backend.service.PortfolioService;
+import io.lunov.backend.service.PreviewService;
+import io.lunov.backend.util.mapper.PhotoMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreviewServiceImpl implements PreviewService {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ImageService imageService;
+    private final PreviewRenderer previewRenderer;
+    private final PhotoRepository photoRepository;
+    private final SessionRepository sessionRepository;
+    private final PhotoMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final PortfolioService portfolioService;
+
+    @Value("${preview.resend.stale-after:PT10M}")
+    private Duration staleAfter;
+
+    @Value("${preview.resend.give-up-after:PT24H}")
+    private Duration giveUpAfter;
+
+    @Value("${preview.resend.batch-size:100}")
+    private int resendBatchSize;
+
+    @Override
+    public void requestPreview(UUID photoId, String bucketName, String fileName) {
+        send(PreviewRequestMessage.builder()
+                .photoId(photoId)
+                .bucketName(bucketName)
+                .fileName(fileName)
+                .build());
+    }
+
+    // a request lost on its way to RabbitMQ, or with a crashed worker, leaves the photo PROCESSING
+    @Scheduled(fixedDelayString = "${preview.resend.interval:PT1M}")
+    public void resendStaleRequests() {
+        Instant now = Instant.now();
+        Instant giveUpBefore = now.minus(giveUpAfter);
+        List<PreviewRequestMessage> requests = new ArrayList<>();
+        List<UUID> failed = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Photo photo : photoRepository.lockRequestedBefore(PhotoStatus.PROCESSING, now.minus(staleAfter),
+                    Limit.of(resendBatchSize))) {
+                if (photo.getCreatedAt().isBefore(giveUpBefore)) {
+                    photo.setStatus(PhotoStatus.FAILED);
+                    failed.add(photo.getId());
+                    continue;
+                }
+                photo.setPreviewRequestedAt(now);
+                requests.add(PreviewRequestMessage.builder()
+                        .photoId(photo.getId())
+                        .bucketName(photo.getBucket())
+                        .fileName(photo.getFilename())
+                        .build());
+            }
+            if (!failed.isEmpty()) {
+                sessionRepository.incrementContentVersionByPhotoIds(failed);
+            }
+        });
+        if (!failed.isEmpty()) {
+            log.warn("Gave up on previews of {} photos still processing after {}", failed.size(), giveUpAfter);
+        }
+        if (!requests.isEmpty()) {
+            log.info("Requesting previews of {} stale photos again", requests.size());
+            requests.forEach(this::send);
+        }
+    }
+
+    @Override
+    @RabbitListener(queues = RabbitConfig.PREVIEW_QUEUE, containerFactory = "previewListenerContainerFactory")
+    public void generatePreview(PreviewRequestMessage message) {
+        log.info("Generating preview for photo {}", message.getPhotoId());
+        // re-sent requests can arrive after the first one was handled
+        if (!photoRepository.existsByIdAndStatus(message.getPhotoId(), PhotoStatus.PROCESSING)) {
+            log.info("Photo {} was deleted or processed before this preview request", message.getPhotoId());
+            return;
+        }
+
+        List<RenditionDTO> renditions;
+        try {
+            renditions = imageService.generateRenditions(message.getBucketName(), message.getFileName());
+        } catch (UnreadableImageException e) {
+            log.error("Failed to generate preview for photo {}: {}", message.getPhotoId(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> photoRepository.findById(message.getPhotoId())
+                    .ifPresent(photo -> {
+                        photo.setStatus(PhotoStatus.FAILED);
+                        sessionRepository.incrementContentVersionByPhotoIds(List.of(photo.getId()));
+                    }));
+            throw new AmqpRejectAndDontRequeueException("Failed to generate preview for photo " + message.getPhotoId(), e);
+        } catch (Exception e) {
+            // storage or network trouble: the listener retries with backoff, then dead-letters the message
+            // and the photo stays PROCESSING for resendStaleRequests to try again later
+            log.warn("Failed to generate preview for photo {}, retrying: {}", message.getPhotoId(), e.getMessage());
+            throw new IllegalStateException("Failed to generate preview for photo " + message.getPhotoId(), e);
+        }
+
+        String previewUrl = renditions.stream()
+                .filter(rendition -> rendition.getWidth() == previewRenderer.getDefaultWidth())
+                .map(RenditionDTO::getUrl)
+                .findFirst()
+                .orElse(ImageServiceImpl.NONE_URL);
+        Boolean stored = transactionTemplate.execute(status -> photoRepository.findById(message.getPhotoId())
+                .map(photo -> {
+                    photo.getRenditions().clear();
+                    photo.getRenditions().addAll(mapper.toRenditions(renditions));
+                    photo.setPreviewUrl(previewUrl);
+                    photo.setStatus(PhotoStatus.READY);
+                    sessionRepository.incrementContentVersionByPhotoIds(List.of(photo.getId()));
+                    if (photo.getSessions().stream().anyMatch(session -> session.getAccessType() == SessionAccessType.PUBLIC)) {
+                        portfolioService.evict();
+                    }
+                    return true;
+                })
+                .orElse(false));
+        if (Boolean.TRUE.equals(stored)) {
+            log.info("Preview for photo {} is ready", message.getPhotoId());
+        } else {
+            deleteOrphanedRenditions(message, renditions);
+        }
+    }
+
+    // the photo was deleted while its renditions were rendered; its delete did not know about them
+    private void deleteOrphanedRenditions(PreviewRequestMessage message, List<RenditionDTO> renditions) {
+        log.info("Photo {} was deleted while its preview was generated, deleting the renditions", message.getPhotoId());
+        try {
+            imageService.deleteObjects(message.getBucketName(), renditions.stream().map(RenditionDTO::getFileName).toList());
+        } catch (Exception e) {
+            log.error("Failed to delete renditions of deleted photo {}: {}", message.getPhotoId(), e.getMessage());
+        }
+    }
+
+    private void send(PreviewRequestMessage message) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitConfig.PREVIEW_EXCHANGE, RabbitConfig.PREVIEW_ROUTING_KEY, message);
+        } catch (AmqpException e) {
+            log.warn("Failed to request preview for photo {}, it is requested again once stale: {}",
+                    message.getPhotoId(), e.getMessage());
+        }
+    }
+}
@@ -1,30 +1,38 @@
 package io.lunov.backend.service.impl;
 
 import io.lunov.backend.model.dto.client.ClientDTO;
-import io.lunov.backend.model.dto.client.ClientInfoDTO;
+import io.lunov.backend.model.dto.page.CursorPageDTO;
 import io.lunov.backend.model.dto.session.*;
 import io.lunov.backend.model.entity.*;
 import io.lunov.backend.model.exception.SessionNotFoundException;
 import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.PhotoRepository.StoredOriginal;
 import io.lunov.backend.repository.SessionRepository;
 import io.lunov.backend.service.ClientService;
 import io.lunov.backend.service.ImageService;
+import io.lunov.backend.service.PhotoBulkDeleteService;
+import io.lunov.backend.service.PortfolioService;
 import io.lunov.backend.service.SessionService;
 import io.lunov.backend.specification.SessionSpecification;
 import io.lunov.backend.util.AccessCodeGenerator;
 import io.lunov.backend.util.mapper.SessionMapper;
+import io.lunov.backend.util.pagination.KeysetPaging;
+import io.lunov.backend.util.pagination.PageCursor;
+import io.lunov.backend.util.security.LoginAttemptGuard;
+import io.lunov.backend.util.storage.BucketRegistry;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.SetBucketPolicyArgs;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Function;
 
 import static io.lunov.backend.service.impl.ImageServiceImpl.POLICY;
 
@@ -38,9 +46,14 @@ public class SessionServiceImpl implements SessionService {
     private final PhotoRepository photoRepository;
     private final SessionMapper mapper;
     private final MinioClient minioClient;
+    private final BucketRegistry bucketRegistry;
     private final AccessCodeGenerator generator;
     private final ImageService imageService;
     private final ClientService clientService;
+    private final KeysetPaging paging;
+    private final PhotoBulkDeleteService bulkDeleteService;
+    private final PortfolioService portfolioService;
+    private final LoginAttemptGuard loginGuard;
 
     private static final String NOT_FOUND = "Session not found. ID: %s";
 
@@ -57,6 +70,7 @@ public class SessionServiceImpl implements SessionService {
         session.setCreatedAt(Instant.now());
 
         var newSession = sessionRepository.save(session);
+        loginGuard.invalidateMisses();
         createSessionBucket(newSession);
 
         return mapper.toDTO(newSession);
@@ -75,6 +89,7 @@ public class SessionServiceImpl implements SessionService {
                             .config(POLICY.formatted(bucketName))
                             .build()
             );
+            bucketRegistry.registered(bucketName);
         } catch (Exception e) {
             log.error("Error making bucket for session: {}", bucketName, e);
         }
@@ -117,11 +132,13 @@ public class SessionServiceImpl implements SessionService {
                 .build());
 
         createSessionBucket(savedSession);
+        portfolioService.evict();
         log.info("Portfolio Album created successfully with id: {}", savedSession.getId());
         return mapper.toDTO(savedSession);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public SessionInfoDTO findById(UUID id) {
         log.info("Finding session with id: {}", id);
         var session = sessionRepository
@@ -138,19 +155,63 @@ public class SessionServiceImpl implements SessionService {
                 .orElseThrow(() -> new SessionNotFoundException(NOT_FOUND.formatted(id.toString())));
     }
 
+    // login lookups read the primary: a lagging replica's miss would be cached and counted as a failed attempt
     @Override
+    @Transactional
     public SessionInfoDTO findByAccessCodeAndClientEmail(SessionDownloadDTO payload) {
-        ClientInfoDTO clientInfoDTO = clientService.findByEmail(payload.getClientEmail());
-        Objects.requireNonNull(clientInfoDTO);
-
+        guardLogin(payload);
         var result = sessionRepository
-                .findByAccessCodeAndClientEmail(payload.getAccessCode(), clientInfoDTO.getEmail())
-                .orElseThrow(() -> new SessionNotFoundException(NOT_FOUND.formatted(payload.getAccessCode())));
+                .findByAccessCodeAndClientEmail(payload.getAccessCode(), payload.getClientEmail())
+                .orElseThrow(() -> loginFailed(payload));
+        loginGuard.succeeded(payload.getClientEmail());
 
         return mapper.toDTO(result);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public SessionVersionDTO findVersion(UUID id) {
+        return sessionRepository.findVersionById(id)
+                .orElseThrow(() -> new SessionNotFoundException(NOT_FOUND.formatted(id.toString())));
+    }
+
+    @Override
+    @Transactional
+    public SessionVersionDTO findVersion(SessionDownloadDTO payload) {
+        guardLogin(payload);
+        var version = sessionRepository.findVersionByAccessCodeAndClientEmail(payload.getAccessCode(), payload.getClientEmail())
+                .orElseThrow(() -> loginFailed(payload));
+        loginGuard.succeeded(payload.getClientEmail());
+        return version;
+    }
+
+    // shed emails with too many failures and known misses before any query runs
+    private void guardLogin(SessionDownloadDTO payload) {
+        loginGuard.checkAllowed(payload.getClientEmail());
+        if (loginGuard.isKnownMiss(payload.getAccessCode(), payload.getClientEmail())) {
+            throw loginFailed(payload);
+        }
+    }
+
+    private SessionNotFoundException loginFailed(SessionDownloadDTO payload) {
+        loginGuard.failed(payload.getAccessCode(), payload.getClientEmail());
+        return new SessionNotFoundException(NOT_FOUND.formatted(payload.getAccessCode()));
+    }
+
+    @Override
+    public void incrementContentVersion(UUID id) {
+        sessionRepository.incrementContentVersion(id);
+    }
+
+    @Override
+    public void incrementContentVersionByPhotoIds(Collection<UUID> photoIds) {
+        if (!photoIds.isEmpty()) {
+            sessionRepository.incrementContentVersionByPhotoIds(photoIds);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<SessionInfoDTO> findAll() {
         log.info("Finding all sessions");
         var result = sessionRepository.findAll();
@@ -162,6 +223,49 @@ public class SessionServiceImpl implements SessionService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SessionInfoDTO> findPage(String cursor, Integer size) {
+        int pageSize = paging.resolveSize(size);
+        List<Session> sessions;
+        if (cursor == null) {
+            sessions = sessionRepository.findFirstPage(paging.limitFor(pageSize));
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            sessions = sessionRepository.findPageAfter(after.createdAt(), after.id(), paging.limitFor(pageSize));
+        }
+        return paging.toPage(sessions, pageSize, mapper::toDTO,
+                session -> new PageCursor(session.getCreatedAt(), session.getId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SessionInfoDTO> searchFuzzy(String query, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be blank");
+        }
+        log.info("Fuzzy searching sessions for: {}", query);
+        return sessionRepository.searchFuzzy(query.trim().toLowerCase(), paging.resolveSize(size)).stream()
+                .map(mapper::toDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SessionSummaryDTO> findSummaryPage(String cursor, Integer size) {
+        int pageSize = paging.resolveSize(size);
+        List<SessionSummaryDTO> summaries;
+        if (cursor == null) {
+            summaries = sessionRepository.findFirstSummaryPage(paging.limitFor(pageSize));
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            summaries = sessionRepository.findSummaryPageAfter(after.createdAt(), after.id(), paging.limitFor(pageSize));
+        }
+        return paging.toPage(summaries, pageSize, Function.identity(),
+                summary -> new PageCursor(summary.getCreatedAt(), summary.getId()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<SessionInfoDTO> findAllByClientId(UUID clientId) {
         log.info("Finding sessions by client ID: {}", clientId);
         var result = sessionRepository.findAllByClientId(clientId);
@@ -179,6 +283,7 @@ public class SessionServiceImpl implements SessionService {
 
 
     @Override
+    @Transactional(readOnly = true)
     public List<SessionInfoDTO> findAllByAccessType(String accessType) {
         log.info("Finding sessions by access-type: {}", accessType);
         var result = sessionRepository.findAllByAccessType(SessionAccessType.valueOf(accessType.toUpperCase()));
@@ -189,6 +294,7 @@ public class SessionServiceImpl implements SessionService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<SessionInfoDTO> findByFilters(SessionSearchDTO sessionInfoSearchDTO){
         log.info("Finding sessions by filters: {}", sessionInfoSearchDTO);
         List<Session> sessions;
@@ -207,14 +313,23 @@ public class SessionServiceImpl implements SessionService {
         var result = sessionRepository
                 .findById(id)
                 .orElseThrow(() -> new SessionNotFoundException(NOT_FOUND.formatted(id.toString())));
+        boolean wasPublic = result.getAccessType() == SessionAccessType.PUBLIC;
 
         Optional.ofNullable(dto.getAccessType()).ifPresent(accessType -> result.setAccessType(SessionAccessType.valueOf(accessType.toUpperCase())));
         Optional.ofNullable(dto.getContentType()).ifPresent(contentType -> result.setContentType(SessionContentType.valueOf(contentType.toUpperCase())));
         Optional.ofNullable(dto.getName()).ifPresent(result::setName);
 
         var updated = sessionRepository.save(result);
+        sessionRepository.incrementContentVersion(id);
+        if (wasPublic || updated.getAccessType() == SessionAccessType.PUBLIC) {
+            portfolioService.evict();
+        }
 
-        return mapper.toDTO(updated);
+        // the entity still holds the version it was loaded with; concurrent bumps may have landed since
+        var dto = mapper.toDTO(updated);
+        sessionRepository.findVersionById(id)
+                .ifPresent(version -> dto.setContentVersion(version.getContentVersion()));
+        return dto;
     }
 
     @Override
@@ -227,37 +342,8 @@ public class SessionServiceImpl implements SessionService {
     @Override
     public void delete(UUID id) {
         log.info("Deleting session with id: {}", id);
-        var session = sessionRepository.findById(id)
-                .orElseThrow(() -> new SessionNotFoundException(NOT_FOUND.formatted(id.toString())));
-        if (session.getAccessType().equals(SessionAccessType.PUBLIC)) {
-            deletePortfolioAlbum(id, session);
-            return;
-        }
-
-        cleanupOrphanedPhotos(session);
-        session.removeAllPhotos();
-        sessionRepository.delete(session);
-    }
-
-    private void deletePortfolioAlbum(UUID id, Session session) {
-        session.removeAllPhotos();
-        imageService.deleteBucket(id.toString());
-        sessionRepository.delete(session);
-    }
-
-    private void cleanupOrphanedPhotos(Session session) {
-        var photos = new ArrayList<Photo>(session.getPhotos());
-        photos.forEach(photo -> {
-            if (photos.size() == 0) {
-                try {
-                    imageService.deleteImage(session.getId().toString(), photo.getFilename());
-                    photoRepository.delete(photo);
-                    log.info("Deleted orphaned photo: {}", photo.getId());
-                } catch (Exception e) {
-                    log.error("Failed to delete photo {} from MinIO", photo.getId(), e);
-                }
-            }
-        });
+        var result = bulkDeleteService.deleteSession(id);
+        log.info("Deleted session {}: {} photos unlinked, {} removed", id, result.getUnlinked(), result.getDeleted());
     }
 
     @Override
@@ -265,21 +351,20 @@ public class SessionServiceImpl implements SessionService {
         var session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new SessionNotFoundException(NOT_FOUND.formatted(sessionId.toString())));
 
-        var result = SessionZipDTO.builder()
+        // the session's photo rows, not its bucket: reused photos are stored in the session that first uploaded them
+        List<StoredOriginal> originals = photoRepository.findOriginalsBySessionId(sessionId);
+        return SessionZipDTO.builder()
                 .fileName(session.getName())
+                .sessionZip(outputStream -> {
+                    try {
+                        imageService.writeZipArchive(sessionId.toString(), originals, outputStream);
+                    } catch (IOException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Failed to stream archive for session {}: {}", sessionId, e.getMessage());
+                        throw new IOException("Failed to stream archive for session: " + sessionId, e);
+                    }
+                })
                 .build();
-
-        try {
-//            InputStream zipStream = imageService.createZipArchive(sessionId.toString());
-//            result.setSessionZip(Optional.of(new InputStreamResource(zipStream)));
-            var zipResource = imageService.createZipArchive(sessionId.toString());
-            result.setSessionZip(Optional.of(zipResource));
-
-        } catch (Exception e) {
-            log.error("Failed to create archive for session {}: {}", sessionId, e.getMessage());
-            result.setSessionZip(Optional.empty());
-        }
-
-        return result;
     }
 }
@@ -1,7 +1,10 @@
 package io.lunov.backend.specification;
 
 import io.lunov.backend.model.dto.session.SessionSearchDTO;
+import io.lunov.backend.model.entity.Client;
 import io.lunov.backend.model.entity.Session;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 
@@ -19,9 +22,12 @@ public class SessionSpecification {
             }
 
             if (filters.getClientName() != null && !filters.getClientName().trim().isBlank()) {
+                // substring match on lower(name) is served by the idx_client_name_trgm GIN index
+                Join<Session, Client> client = root.join("client", JoinType.LEFT);
                 predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("clientName")),
-                        "%" + filters.getClientName().trim().toLowerCase() + "%"
+                        criteriaBuilder.lower(client.get("name")),
+                        "%" + escapeLike(filters.getClientName().trim().toLowerCase()) + "%",
+                        '\\'
                 ));
             }
 
@@ -47,4 +53,8 @@ public class SessionSpecification {
         };
 
     }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -0,0 +1,67 @@
+package io.lunov.backend.util.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.internal.SimpleCacheKeysFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+
+import javax.cache.Cache;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate second-level cache on Caffeine's JCache provider. Every region is bounded
+ * by entry count and time-to-live, and evictions of entity and collection regions are
+ * broadcast through {@link CacheInvalidationBroadcaster}; the time-to-live bounds how
+ * long an instance that missed a message can serve stale state.
+ * <p>
+ * Cache keys are the plain ids ({@link SimpleCacheKeysFactory}), so they mean the same
+ * on every instance and travel as UUIDs.
+ */
+@Slf4j
+public class BroadcastingRegionFactory extends JCacheRegionFactory {
+
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final long maxEntries;
+    private final Duration timeToLive;
+    private final Map<String, BroadcastingStorageAccess> regions = new ConcurrentHashMap<>();
+
+    public BroadcastingRegionFactory(CacheInvalidationBroadcaster broadcaster, long maxEntries, Duration timeToLive) {
+        super(SimpleCacheKeysFactory.INSTANCE);
+        this.broadcaster = broadcaster;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        BroadcastingStorageAccess access = new BroadcastingStorageAccess(regionConfig.getRegionName(),
+                super.createDomainDataStorageAccess(regionConfig, buildingContext), broadcaster);
+        regions.put(regionConfig.getRegionName(), access);
+        return access;
+    }
+
+    @Override
+    protected Cache<Object, Object> createCache(String regionName) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return getCacheManager().createCache(regionName, configuration);
+    }
+
+    public void evictLocally(String region, Object key) {
+        BroadcastingStorageAccess access = regions.get(region);
+        if (access == null) {
+            log.debug("Ignoring eviction for unknown cache region {}", region);
+            return;
+        }
+        access.evictLocally(key);
+    }
+}
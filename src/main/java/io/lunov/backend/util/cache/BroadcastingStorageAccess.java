@@ -0,0 +1,88 @@
+package io.lunov.backend.util.cache;
+
+import io.lunov.backend.util.datasource.ReplicaRoutingDataSource;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * Storage of one entity or collection region that passes every eviction on to the
+ * other instances. With NONSTRICT_READ_WRITE, updates and deletes evict instead of
+ * writing the new state, so evictions are all that has to travel.
+ * <p>
+ * State loaded from a read replica is not cached: a replica behind the primary would
+ * put back rows an eviction has just removed, and nothing would evict them again.
+ */
+public class BroadcastingStorageAccess implements DomainDataStorageAccess {
+
+    private final String region;
+    private final DomainDataStorageAccess delegate;
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    public BroadcastingStorageAccess(String region, DomainDataStorageAccess delegate,
+                                     CacheInvalidationBroadcaster broadcaster) {
+        this.region = region;
+        this.delegate = delegate;
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        return delegate.getFromCache(key, session);
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        delegate.putIntoCache(key, value, session);
+    }
+
+    @Override
+    public void putFromLoad(Object key, Object value, SharedSessionContractImplementor session) {
+        if (ReplicaRoutingDataSource.isReadingFromReplica()) {
+            return;
+        }
+        delegate.putFromLoad(key, value, session);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return delegate.contains(key);
+    }
+
+    @Override
+    public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+        delegate.removeFromCache(key, session);
+        broadcaster.publish(region, key);
+    }
+
+    @Override
+    public void clearCache(SharedSessionContractImplementor session) {
+        delegate.clearCache(session);
+        broadcaster.publish(region, null);
+    }
+
+    @Override
+    public void evictData() {
+        delegate.evictData();
+        broadcaster.publish(region, null);
+    }
+
+    @Override
+    public void evictData(Object key) {
+        delegate.evictData(key);
+        broadcaster.publish(region, key);
+    }
+
+    // applies an eviction received from another instance without sending it on
+    public void evictLocally(Object key) {
+        if (key == null) {
+            delegate.evictData();
+        } else {
+            delegate.evictData(key);
+        }
+    }
+
+    @Override
+    public void release() {
+        delegate.release();
+    }
+}
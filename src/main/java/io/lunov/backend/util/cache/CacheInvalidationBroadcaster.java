@@ -0,0 +1,111 @@
+package io.lunov.backend.util.cache;
+
+import io.lunov.backend.config.RabbitConfig;
+import io.lunov.backend.model.dto.cache.CacheInvalidationMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Publishes second-level cache evictions to every API instance over the
+ * {@value RabbitConfig#CACHE_INVALIDATION_EXCHANGE} fanout exchange. Evictions of a
+ * transaction are collected and sent as one message once it has committed: sent during
+ * the flush, they would let other instances load and cache the old rows again, and a
+ * rolled back transaction has nothing to evict elsewhere. A lost message leaves other
+ * instances stale until the entry's time-to-live runs out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBroadcaster {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String node = UUID.randomUUID().toString();
+
+    /**
+     * @param key the cache key of the entity or collection owner, or null for the whole region
+     */
+    public void publish(String region, Object key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Batch batch = new Batch();
+            batch.add(region, key);
+            send(batch);
+            return;
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            Batch pending = new Batch();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            // sent after completion rather than after commit, so that evictions made by other
+            // afterCommit callbacks still go along
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBroadcaster.this);
+                    if (status == STATUS_COMMITTED) {
+                        send(pending);
+                    }
+                }
+            });
+            batch = pending;
+        }
+        batch.add(region, key);
+    }
+
+    public boolean isOwn(CacheInvalidationMessage message) {
+        return node.equals(message.getNode());
+    }
+
+    private void send(Batch batch) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitConfig.CACHE_INVALIDATION_EXCHANGE, "", batch.toMessage(node));
+        } catch (AmqpException e) {
+            log.warn("Failed to broadcast evictions of {} keys and {} regions: {}",
+                    batch.keyCount(), batch.regions.size(), e.getMessage());
+        }
+    }
+
+    // a cleared region makes single keys of it redundant
+    private static final class Batch {
+        private final Map<String, Set<UUID>> keys = new LinkedHashMap<>();
+        private final Set<String> regions = new LinkedHashSet<>();
+
+        void add(String region, Object key) {
+            // keys are entity ids (simple cache keys); anything else is sent as a region clear
+            if (key instanceof UUID id) {
+                if (!regions.contains(region)) {
+                    keys.computeIfAbsent(region, r -> new LinkedHashSet<>()).add(id);
+                }
+            } else {
+                regions.add(region);
+                keys.remove(region);
+            }
+        }
+
+        int keyCount() {
+            return keys.values().stream().mapToInt(Set::size).sum();
+        }
+
+        CacheInvalidationMessage toMessage(String node) {
+            Map<String, List<UUID>> keyLists = new LinkedHashMap<>();
+            keys.forEach((region, ids) -> keyLists.put(region, new ArrayList<>(ids)));
+            return CacheInvalidationMessage.builder()
+                    .node(node)
+                    .keys(keyLists)
+                    .regions(regions)
+                    .build();
+        }
+    }
+}
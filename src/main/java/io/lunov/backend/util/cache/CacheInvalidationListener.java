@@ -0,0 +1,32 @@
+package io.lunov.backend.util.cache;
+
+import io.lunov.backend.model.dto.cache.CacheInvalidationMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+// every instance consumes its own anonymous queue, so each eviction reaches all of them
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationListener {
+
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final BroadcastingRegionFactory regionFactory;
+
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}")
+    public void onInvalidation(CacheInvalidationMessage message) {
+        if (broadcaster.isOwn(message)) {
+            return;
+        }
+        log.debug("Evicting {} and clearing {} on request of {}",
+                message.getKeys(), message.getRegions(), message.getNode());
+        if (message.getRegions() != null) {
+            message.getRegions().forEach(region -> regionFactory.evictLocally(region, null));
+        }
+        if (message.getKeys() != null) {
+            message.getKeys().forEach((region, ids) -> ids.forEach(id -> regionFactory.evictLocally(region, id)));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.lunov.backend.util.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica, round robin, and everything else
+ * to the primary. Replicas that fail {@link #checkReplicas()} are skipped until they
+ * pass again; with none left, reads fall back to the primary.
+ * <p>
+ * The lookup happens when a connection is taken, so this has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: transaction
+ * managers take the connection before the read-only flag of the transaction is published.
+ * Transactions that got a replica connection are marked, see {@link #isReadingFromReplica()}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    // transaction resource key of the replica mark
+    private static final Object REPLICA_READ = new Object();
+
+    private final Map<String, DataSource> replicas;
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthy = List.of();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration validationTimeout) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.validationTimeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> candidates = healthy;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        markReplicaRead();
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Whether the current transaction reads from a replica, which may lag behind the primary.
+     */
+    public static boolean isReadingFromReplica() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_READ);
+    }
+
+    private static void markReplicaRead() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(REPLICA_READ)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(REPLICA_READ, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(REPLICA_READ);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.health-check-interval:PT10S}")
+    public void checkReplicas() {
+        List<String> up = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> {
+            try (Connection connection = dataSource.getConnection()) {
+                if (connection.isValid(validationTimeoutSeconds)) {
+                    up.add(name);
+                }
+            } catch (Exception e) {
+                log.debug("Replica {} is not reachable: {}", name, e.getMessage());
+            }
+        });
+
+        List<String> previous = healthy;
+        healthy = List.copyOf(up);
+        if (!previous.equals(healthy)) {
+            log.warn("Healthy read replicas changed from {} to {}{}", previous, healthy,
+                    healthy.isEmpty() ? ", reads fall back to the primary" : "");
+        }
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthy;
+    }
+
+    // replica pools belong to this data source, the primary is a bean of its own
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : replicas.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.lunov.backend.util.http;
+
+import java.util.UUID;
+
+/**
+ * Strong entity tags derived from a session's content version. The kind tells apart
+ * the representations built from the same session, e.g. the session and its photo list.
+ */
+public final class ETags {
+
+    public static final String SESSION = "session";
+    public static final String SESSION_PHOTOS = "photos";
+
+    private ETags() {
+    }
+
+    public static String of(String kind, UUID sessionId, long contentVersion) {
+        return "\"%s-%s-%d\"".formatted(kind, sessionId, contentVersion);
+    }
+
+    /**
+     * If-None-Match evaluation for requests {@code WebRequest.checkNotModified} does not
+     * cover: it answers anything but GET and HEAD with 412 instead of 304.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package io.lunov.backend.util.http;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a local file, or the single byte range a request asks for, as the response body.
+ * <p>
+ * On Tomcat connectors with sendfile the file is handed to the container, which sends it
+ * with {@code FileChannel.transferTo} straight to the socket once the handler returned;
+ * elsewhere it is transferred onto the servlet output stream here. Multi-range requests
+ * get the whole file.
+ */
+public final class RangeFileWriter {
+
+    // request attributes of Tomcat's sendfile support, see org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private RangeFileWriter() {
+    }
+
+    /**
+     * Sets status, length and range headers and writes the body.
+     *
+     * @return the number of body bytes sent or handed to the container
+     */
+    public static long write(Path file, long size, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        long start = 0;
+        long end = size - 1;
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.getFirst().getRangeStart(size);
+                    end = ranges.getFirst().getRangeEnd(size);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end, size));
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return 0;
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (length == 0 || HttpMethod.HEAD.matches(request.getMethod())) {
+            return 0;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return length;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel body = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end - position + 1, body);
+                if (sent <= 0) {
+                    throw new EOFException("%s ended at byte %d of %d".formatted(file, position, size));
+                }
+                position += sent;
+            }
+        }
+        return length;
+    }
+}
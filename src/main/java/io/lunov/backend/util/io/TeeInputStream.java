@@ -0,0 +1,102 @@
+package io.lunov.backend.util.io;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies every byte read from the source into a second stream, so one read of an upload
+ * can feed two consumers. A failing branch is detached and never breaks the main reader.
+ */
+@Slf4j
+public class TeeInputStream extends FilterInputStream {
+
+    private OutputStream branch;
+    private long bytesRead;
+
+    public TeeInputStream(InputStream source, OutputStream branch) {
+        super(source);
+        this.branch = branch;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            bytesRead++;
+            copy(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            bytesRead += read;
+            copy(buffer, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes still have to reach the branch
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            detach();
+        }
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private void copy(byte[] buffer, int offset, int length) {
+        if (branch == null) {
+            return;
+        }
+        try {
+            branch.write(buffer, offset, length);
+            branch.flush();
+        } catch (IOException e) {
+            log.debug("Tee branch closed, continuing without it: {}", e.getMessage());
+            detach();
+        }
+    }
+
+    private void detach() {
+        if (branch == null) {
+            return;
+        }
+        try {
+            branch.close();
+        } catch (IOException ignored) {
+        } finally {
+            branch = null;
+        }
+    }
+}
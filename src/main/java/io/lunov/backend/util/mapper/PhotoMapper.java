@@ -1,21 +1,46 @@
 package io.lunov.backend.util.mapper;
 
+import io.lunov.backend.model.dto.image.RenditionDTO;
 import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.photo.PhotoShortInfoDTO;
 import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoRendition;
 import io.lunov.backend.model.entity.Session;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Mapper(componentModel = "spring")
 public interface PhotoMapper {
     @Mapping(target = "sessionIds", source = "sessions")
     @Mapping(target = "primarySessionId", source = "primarySession.id")
+    @Mapping(target = "renditions", source = "renditions", qualifiedByName = "renditionsToUrls")
     PhotoInfoDTO toDto(Photo photo);
 
+    @Mapping(target = "renditions", source = "renditions", qualifiedByName = "renditionsToUrls")
+    PhotoShortInfoDTO toShortDto(Photo photo);
+
+    @Mapping(target = "objectName", source = "fileName")
+    PhotoRendition toRendition(RenditionDTO dto);
+
+    List<PhotoRendition> toRenditions(List<RenditionDTO> dtos);
+
+    @Named("renditionsToUrls")
+    default Map<Integer, String> renditionsToUrls(List<PhotoRendition> renditions) {
+        if (renditions == null) {
+            return Map.of();
+        }
+        return renditions.stream()
+                .collect(Collectors.toMap(PhotoRendition::getWidth, PhotoRendition::getUrl,
+                        (first, second) -> first, TreeMap::new));
+    }
+
     default List<UUID> mapSessions(List<Session> sessions) {
         if (sessions == null) {
             return List.of();
@@ -1,10 +1,8 @@
 package io.lunov.backend.util.mapper;
 
-import io.lunov.backend.model.dto.photo.PhotoShortInfoDTO;
 import io.lunov.backend.model.dto.session.SessionCreateDTO;
 import io.lunov.backend.model.dto.session.SessionInfoDTO;
 import io.lunov.backend.model.entity.Client;
-import io.lunov.backend.model.entity.Photo;
 import io.lunov.backend.model.entity.Session;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -13,10 +11,9 @@ import org.mapstruct.Named;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.List;
 import java.util.UUID;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", uses = PhotoMapper.class)
 public interface SessionMapper {
 
     @Mapping(target = "id", ignore = true)
@@ -27,7 +24,6 @@ public interface SessionMapper {
     @Mapping(source = "sessionDate", target = "sessionDate", qualifiedByName = "stringToInstant")
     Session toEntity(SessionCreateDTO dto);
 
-    @Mapping(source = "photos", target = "photos", qualifiedByName = "photosToUrls")
     @Mapping(target = "clientId", source = "client.id")
     SessionInfoDTO toDTO(Session session);
 
@@ -41,20 +37,6 @@ public interface SessionMapper {
                 .toInstant();
     }
 
-    @Named("photosToUrls")
-    default List<PhotoShortInfoDTO> photosToDTO(List<Photo> photos) {
-        if (photos == null) {
-            return List.of();
-        }
-        return photos.stream()
-                .map(photo -> PhotoShortInfoDTO.builder()
-                        .id(photo.getId())
-                        .originalUrl(photo.getOriginalUrl())
-                        .previewUrl(photo.getPreviewUrl())
-                        .build())
-                .toList();
-    }
-
     @Named("clientIdToClient")
     default Client clientIdToClient(UUID clientId) {
         if (clientId == null) {
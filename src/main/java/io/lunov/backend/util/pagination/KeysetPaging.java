@@ -0,0 +1,50 @@
+package io.lunov.backend.util.pagination;
+
+import io.lunov.backend.model.dto.page.CursorPageDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shared page size policy and page assembly for keyset listings. Repositories are
+ * queried for one row more than the page size, which tells whether a next page exists
+ * without a count query.
+ */
+@Component
+public class KeysetPaging {
+
+    @Value("${pagination.default-size:50}")
+    private int defaultSize;
+
+    @Value("${pagination.max-size:200}")
+    private int maxSize;
+
+    public int resolveSize(Integer requested) {
+        if (requested == null) {
+            return defaultSize;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requested, maxSize);
+    }
+
+    public Limit limitFor(int size) {
+        return Limit.of(size + 1);
+    }
+
+    public <E, D> CursorPageDTO<D> toPage(List<E> rows, int size, Function<E, D> mapper,
+                                          Function<E, PageCursor> position) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        return CursorPageDTO.<D>builder()
+                .items(page.stream().map(mapper).toList())
+                .nextCursor(hasNext ? position.apply(page.getLast()).encode() : null)
+                .hasNext(hasNext)
+                .size(page.size())
+                .build();
+    }
+}
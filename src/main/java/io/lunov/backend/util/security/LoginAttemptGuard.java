@@ -0,0 +1,91 @@
+package io.lunov.backend.util.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lunov.backend.model.exception.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory front of the client login (access code + email). Recent misses are
+ * answered without a query, and an email with too many failures in a row is shed
+ * with {@link TooManyLoginAttemptsException} until {@code session.login.failure-window}
+ * has passed since its last failure. Both are per instance and bounded in size.
+ * <p>
+ * A miss is only as good as the read behind it, so callers look logins up on the primary.
+ */
+@Component
+public class LoginAttemptGuard {
+
+    private record Attempt(String accessCode, String clientEmail) {
+    }
+
+    private final Cache<Attempt, Boolean> misses;
+    private final Cache<String, AtomicInteger> failures;
+    private final int maxFailures;
+    private final Duration failureWindow;
+    private final Counter shed;
+
+    public LoginAttemptGuard(@Value("${session.login.negative-cache.max-size:10000}") long maxMisses,
+                             @Value("${session.login.negative-cache.ttl:PT5M}") Duration missTtl,
+                             @Value("${session.login.max-failures:10}") int maxFailures,
+                             @Value("${session.login.failure-window:PT15M}") Duration failureWindow,
+                             MeterRegistry meterRegistry) {
+        this.maxFailures = maxFailures;
+        this.failureWindow = failureWindow;
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(maxMisses)
+                .expireAfterWrite(missTtl)
+                .recordStats()
+                .build();
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(maxMisses)
+                .expireAfterWrite(failureWindow)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, misses, "login-misses");
+        this.shed = meterRegistry.counter("session.login.shed");
+    }
+
+    public void checkAllowed(String clientEmail) {
+        AtomicInteger count = failures.getIfPresent(normalize(clientEmail));
+        if (count != null && count.get() >= maxFailures) {
+            shed.increment();
+            throw new TooManyLoginAttemptsException(
+                    "Too many failed attempts for %s, try again later".formatted(clientEmail), failureWindow);
+        }
+    }
+
+    public boolean isKnownMiss(String accessCode, String clientEmail) {
+        return misses.getIfPresent(new Attempt(accessCode, clientEmail)) != null;
+    }
+
+    public void failed(String accessCode, String clientEmail) {
+        misses.put(new Attempt(accessCode, clientEmail), Boolean.TRUE);
+        // re-put so the window restarts with every failure
+        failures.asMap().compute(normalize(clientEmail), (email, count) -> {
+            AtomicInteger next = count != null ? count : new AtomicInteger();
+            next.incrementAndGet();
+            return next;
+        });
+    }
+
+    public void succeeded(String clientEmail) {
+        failures.invalidate(normalize(clientEmail));
+    }
+
+    // a new access code or a changed email can turn any recorded miss into a hit
+    public void invalidateMisses() {
+        misses.invalidateAll();
+    }
+
+    private static String normalize(String clientEmail) {
+        return clientEmail.trim().toLowerCase(Locale.ROOT);
+    }
+}
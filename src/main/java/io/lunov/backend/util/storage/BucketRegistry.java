@@ -0,0 +1,68 @@
+package io.lunov.backend.util.storage;
+
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+import io.minio.messages.Bucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buckets known to exist, so uploads and deletes skip the {@code bucketExists}
+ * round trip. Filled when the application creates or finds a bucket and replaced
+ * by a full listing in the background; a name not in the registry is still
+ * checked against MinIO before it is reported missing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BucketRegistry {
+
+    private final MinioClient minioClient;
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+
+    public boolean exists(String bucketName) {
+        if (buckets.contains(bucketName)) {
+            return true;
+        }
+        try {
+            boolean exists = minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
+            if (exists) {
+                buckets.add(bucketName);
+            }
+            return exists;
+        } catch (Exception e) {
+            log.error("Something went wrong when check bucket exists. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public void registered(String bucketName) {
+        buckets.add(bucketName);
+    }
+
+    public void removed(String bucketName) {
+        buckets.remove(bucketName);
+    }
+
+    // also picks up buckets created or removed outside this instance
+    @Scheduled(fixedDelayString = "${minio.bucket-registry.refresh-interval:PT5M}")
+    public void refresh() {
+        try {
+            Set<String> listed = new HashSet<>();
+            for (Bucket bucket : minioClient.listBuckets()) {
+                listed.add(bucket.name());
+            }
+            buckets.retainAll(listed);
+            buckets.addAll(listed);
+            log.debug("Bucket registry refreshed: {} buckets", listed.size());
+        } catch (Exception e) {
+            log.warn("Failed to refresh bucket registry, keeping {} known buckets: {}", buckets.size(), e.getMessage());
+        }
+    }
+}
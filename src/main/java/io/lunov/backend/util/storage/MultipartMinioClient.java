@@ -0,0 +1,56 @@
+package io.lunov.backend.util.storage;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.messages.Part;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exposes the low level S3 multipart calls of {@link MinioAsyncClient}, which the
+ * SDK keeps protected behind {@code putObject}. Chunked uploads need them to send
+ * parts in separate HTTP requests and to resume an upload after a client reconnects.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createMultipartUpload(String bucketName, String objectName, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", contentType);
+        return await(createMultipartUploadAsync(bucketName, null, objectName, headers, null)
+                .thenApply(response -> response.result().uploadId()));
+    }
+
+    public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber, byte[] data)
+            throws Exception {
+        return await(uploadPartAsync(bucketName, null, objectName, data, data.length, uploadId, partNumber, null, null)
+                .thenApply(response -> response.etag()));
+    }
+
+    public void completeMultipartUpload(String bucketName, String objectName, String uploadId, Part[] parts)
+            throws Exception {
+        await(completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null));
+    }
+
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        await(abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null));
+    }
+
+    public void deleteObject(String bucketName, String objectName) throws Exception {
+        await(removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build()));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package io.lunov.backend.util.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Size-bounded LRU cache of stored objects on local disk, keyed by bucket and object
+ * name. Concurrent misses of one object share a single download.
+ * <p>
+ * Files are handed out by path and may still be opened by the servlet container after
+ * {@link #get} returned (sendfile), so evicted files are deleted only once
+ * {@code preview.cache.delete-grace} has passed; every download gets a file name of its
+ * own, so a re-cached object never collides with its evicted predecessor. A download
+ * that overlapped an invalidation is handed to its callers but not cached, since it may
+ * hold the object as it was before the change. Files left over from a previous run are
+ * removed on startup.
+ */
+@Slf4j
+@Component
+public class PreviewDiskCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        void load(Path target) throws IOException;
+    }
+
+    public record CachedFile(Path path, long size) {
+    }
+
+    private record Key(String bucketName, String objectName) {
+    }
+
+    private record Evicted(Path path, Instant at) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration deleteGrace;
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, CachedFile> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Key, CompletableFuture<CachedFile>> loading = new ConcurrentHashMap<>();
+    private final Queue<Evicted> evicted = new ConcurrentLinkedQueue<>();
+    private long usedBytes;
+    // bumped by every invalidation, compared by add() against the value seen when the download started
+    private long invalidations;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PreviewDiskCache(@Value("${preview.cache.directory:${java.io.tmpdir}/lunov-previews}") Path directory,
+                            @Value("${preview.cache.max-size:2GB}") DataSize maxSize,
+                            @Value("${preview.cache.delete-grace:PT1M}") Duration deleteGrace,
+                            MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxSize.toBytes();
+        this.deleteGrace = deleteGrace;
+        Files.createDirectories(directory);
+        // files of a previous run are not indexed, only the cache's own are removed
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*.{bin,part}")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        this.hits = Counter.builder("preview.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("preview.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("preview.cache.size", this, PreviewDiskCache::usedBytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("preview.cache.entries", this, PreviewDiskCache::entryCount).register(meterRegistry);
+        Gauge.builder("preview.cache.hit.ratio", this, PreviewDiskCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached file of the object, downloading it with {@code loader} on a miss.
+     */
+    public CachedFile get(String bucketName, String objectName, Loader loader) throws IOException {
+        Key key = new Key(bucketName, objectName);
+        long generation;
+        synchronized (this) {
+            CachedFile cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            generation = invalidations;
+        }
+        misses.increment();
+
+        CompletableFuture<CachedFile> download = new CompletableFuture<>();
+        CompletableFuture<CachedFile> running = loading.putIfAbsent(key, download);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            CachedFile file = download(loader);
+            add(key, file, generation);
+            download.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            // an invalidation may have let a newer download of the key start meanwhile
+            loading.remove(key, download);
+        }
+    }
+
+    public synchronized void invalidate(String bucketName, String objectName) {
+        Key key = new Key(bucketName, objectName);
+        invalidations++;
+        // later requests start a download of their own instead of joining one that began before
+        loading.remove(key);
+        CachedFile file = entries.remove(key);
+        if (file != null) {
+            evict(file);
+        }
+    }
+
+    public synchronized void invalidateBucket(String bucketName) {
+        invalidations++;
+        loading.keySet().removeIf(key -> key.bucketName().equals(bucketName));
+        Iterator<Map.Entry<Key, CachedFile>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, CachedFile> entry = iterator.next();
+            if (entry.getKey().bucketName().equals(bucketName)) {
+                iterator.remove();
+                evict(entry.getValue());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${preview.cache.delete-grace:PT1M}")
+    public void deleteEvicted() {
+        Instant threshold = Instant.now().minus(deleteGrace);
+        Evicted next;
+        while ((next = evicted.peek()) != null && next.at().isBefore(threshold)) {
+            evicted.poll();
+            try {
+                Files.deleteIfExists(next.path());
+            } catch (IOException e) {
+                log.warn("Failed to delete evicted preview {}: {}", next.path(), e.getMessage());
+            }
+        }
+    }
+
+    private CachedFile download(Loader loader) throws IOException {
+        Path path = directory.resolve(UUID.randomUUID() + ".bin");
+        Path partial = directory.resolve(path.getFileName() + ".part");
+        try {
+            loader.load(partial);
+            Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE);
+            return new CachedFile(path, Files.size(path));
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private synchronized void add(Key key, CachedFile file, long generation) {
+        if (generation != invalidations) {
+            // never counted in usedBytes; only the file goes through the grace period
+            evicted.add(new Evicted(file.path(), Instant.now()));
+            return;
+        }
+        usedBytes += file.size();
+        CachedFile replaced = entries.put(key, file);
+        if (replaced != null) {
+            evict(replaced);
+        }
+        // the newest entry stays even when it alone exceeds the bound
+        Iterator<CachedFile> eldest = entries.values().iterator();
+        while (usedBytes > maxBytes && entries.size() > 1) {
+            CachedFile victim = eldest.next();
+            eldest.remove();
+            evict(victim);
+        }
+    }
+
+    private void evict(CachedFile file) {
+        usedBytes -= file.size();
+        evicted.add(new Evicted(file.path(), Instant.now()));
+    }
+
+    private static CachedFile await(CompletableFuture<CachedFile> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a preview download", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private synchronized double usedBytes() {
+        return usedBytes;
+    }
+
+    private synchronized double entryCount() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
@@ -0,0 +1,10 @@
+-- Executed by Hibernate after it creates the schema (ddl-auto create/create-drop).
+-- Trigram GIN indexes behind fuzzy and substring search over session and client names.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_session_name_trgm ON sessions USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_client_name_trgm ON clients USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_client_email_trgm ON clients USING gin (lower(email) gin_trgm_ops);
+-- Join and collection tables have no keys of their own; bulk deletion filters them from both sides.
+CREATE INDEX IF NOT EXISTS idx_sessions_photos_session_id ON sessions_photos (session_id);
+CREATE INDEX IF NOT EXISTS idx_sessions_photos_photo_id ON sessions_photos (photo_id);
+CREATE INDEX IF NOT EXISTS idx_photo_renditions_photo_id ON photo_renditions (photo_id);
@@ -0,0 +1,98 @@
+package io.lunov.backend.controller;
+
+import io.lunov.backend.controller.advice.PhotoControllerAdvice;
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.session.SessionVersionDTO;
+import io.lunov.backend.service.PhotoBulkDeleteService;
+import io.lunov.backend.service.PhotoService;
+import io.lunov.backend.service.PreviewDeliveryService;
+import io.lunov.backend.service.SessionService;
+import io.lunov.backend.util.http.ETags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PhotoControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private PhotoService service;
+
+    @Mock
+    private PhotoBulkDeleteService bulkDeleteService;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private PreviewDeliveryService previewDeliveryService;
+
+    @InjectMocks
+    private PhotoController controller;
+
+    private UUID sessionId;
+
+    @BeforeEach
+    void setup() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(controller)
+                .setControllerAdvice(new PhotoControllerAdvice())
+                .build();
+        sessionId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match with 304 without loading the photos")
+    void shouldNotLoadUnchangedPhotos() throws Exception {
+        when(sessionService.findVersion(sessionId)).thenReturn(new SessionVersionDTO(sessionId, 5));
+
+        mockMvc.perform(get("/api/v1/photos/{sessionId}", sessionId)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETags.of(ETags.SESSION_PHOTOS, sessionId, 5)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(service, never()).findAllBySessionId(any());
+    }
+
+    @Test
+    @DisplayName("Should send the photos with a new ETag once the session's content version went up")
+    void shouldSendChangedPhotos() throws Exception {
+        when(sessionService.findVersion(sessionId)).thenReturn(new SessionVersionDTO(sessionId, 6));
+        when(service.findAllBySessionId(sessionId)).thenReturn(List.of(PhotoInfoDTO.builder().id(UUID.randomUUID()).build()));
+
+        mockMvc.perform(get("/api/v1/photos/{sessionId}", sessionId)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETags.of(ETags.SESSION_PHOTOS, sessionId, 5)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETags.of(ETags.SESSION_PHOTOS, sessionId, 6)))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Should not answer the photo list with the ETag of the session itself")
+    void shouldTellRepresentationsApart() throws Exception {
+        when(sessionService.findVersion(sessionId)).thenReturn(new SessionVersionDTO(sessionId, 5));
+        when(service.findAllBySessionId(sessionId)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/photos/{sessionId}", sessionId)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETags.of(ETags.SESSION, sessionId, 5)))
+                .andExpect(status().isOk());
+    }
+}
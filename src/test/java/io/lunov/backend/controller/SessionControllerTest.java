@@ -0,0 +1,144 @@
+package io.lunov.backend.controller;
+
+import io.lunov.backend.controller.advice.SessionControllerAdvice;
+import io.lunov.backend.model.dto.session.SessionDownloadDTO;
+import io.lunov.backend.model.dto.session.SessionInfoDTO;
+import io.lunov.backend.model.dto.session.SessionUpdateDTO;
+import io.lunov.backend.model.dto.session.SessionVersionDTO;
+import io.lunov.backend.service.SessionService;
+import io.lunov.backend.util.http.ETags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionControllerTest {
+
+    private static final String FIND_PAYLOAD = """
+            {"clientEmail": "john@example.com", "accessCode": "ABCD1234"}
+            """;
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private SessionService service;
+
+    @InjectMocks
+    private SessionController controller;
+
+    private UUID sessionId;
+
+    @BeforeEach
+    void setup() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(controller)
+                .setControllerAdvice(new SessionControllerAdvice())
+                .build();
+        sessionId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match with 304 without loading the session")
+    void shouldNotLoadUnchangedSession() throws Exception {
+        when(service.findVersion(sessionId)).thenReturn(new SessionVersionDTO(sessionId, 3));
+
+        mockMvc.perform(get("/api/v1/sessions/{id}", sessionId)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETags.of(ETags.SESSION, sessionId, 3)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(service, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should send the session with a new ETag once its content version went up")
+    void shouldSendChangedSession() throws Exception {
+        when(service.findVersion(sessionId)).thenReturn(new SessionVersionDTO(sessionId, 4));
+        when(service.findById(sessionId)).thenReturn(session(4));
+
+        mockMvc.perform(get("/api/v1/sessions/{id}", sessionId)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETags.of(ETags.SESSION, sessionId, 3)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETags.of(ETags.SESSION, sessionId, 4)))
+                .andExpect(jsonPath("$.id").value(sessionId.toString()));
+    }
+
+    @Test
+    @DisplayName("Should answer a client login with a matching If-None-Match with 304 without loading the session")
+    void shouldNotLoadUnchangedClientSession() throws Exception {
+        when(service.findVersion(any(SessionDownloadDTO.class))).thenReturn(new SessionVersionDTO(sessionId, 7));
+
+        mockMvc.perform(post("/api/v1/sessions/find")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(FIND_PAYLOAD)
+                        .header(HttpHeaders.IF_NONE_MATCH, ETags.of(ETags.SESSION, sessionId, 7)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETags.of(ETags.SESSION, sessionId, 7)));
+
+        verify(service, never()).findByAccessCodeAndClientEmail(any());
+    }
+
+    @Test
+    @DisplayName("Should skip the version lookup of a client login without If-None-Match")
+    void shouldLoadClientSessionWithoutTag() throws Exception {
+        when(service.findByAccessCodeAndClientEmail(any(SessionDownloadDTO.class))).thenReturn(session(7));
+
+        mockMvc.perform(post("/api/v1/sessions/find")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(FIND_PAYLOAD))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETags.of(ETags.SESSION, sessionId, 7)));
+
+        verify(service, never()).findVersion(any(SessionDownloadDTO.class));
+    }
+
+    @Test
+    @DisplayName("Should tag an updated session with a new ETag that no longer matches the old one")
+    void shouldChangeTagOnUpdate() throws Exception {
+        String before = ETags.of(ETags.SESSION, sessionId, 3);
+        when(service.update(eq(sessionId), any(SessionUpdateDTO.class))).thenReturn(session(4));
+        when(service.findVersion(sessionId)).thenReturn(new SessionVersionDTO(sessionId, 4));
+        when(service.findById(sessionId)).thenReturn(session(4));
+
+        String after = mockMvc.perform(patch("/api/v1/sessions/{id}", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Wedding, edited"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(after).isNotEqualTo(before);
+
+        mockMvc.perform(get("/api/v1/sessions/{id}", sessionId)
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, after));
+    }
+
+    private SessionInfoDTO session(long contentVersion) {
+        return SessionInfoDTO.builder()
+                .id(sessionId)
+                .name("Wedding")
+                .contentVersion(contentVersion)
+                .build();
+    }
+}
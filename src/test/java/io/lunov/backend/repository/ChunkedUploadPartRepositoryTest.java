@@ -0,0 +1,105 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.ChunkedUploadPart;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Re-sent chunks against a real database: every copy of a part lands on the one row
+ * the unique constraint allows, however many copies arrive at once.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ChunkedUploadPartRepositoryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private ChunkedUploadPartRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM chunked_upload_parts");
+    }
+
+    @Test
+    @DisplayName("Should replace the acknowledged part when a chunk is sent again")
+    void shouldReplaceRepeatedChunk() {
+        UUID uploadId = UUID.randomUUID();
+
+        repository.upsert(uploadId, 1, "etag-1", 100);
+        repository.upsert(uploadId, 2, "etag-2", 100);
+        repository.upsert(uploadId, 1, "etag-1-again", 50);
+
+        assertThat(repository.findByUploadIdOrderByPartNumber(uploadId))
+                .extracting(ChunkedUploadPart::getPartNumber, ChunkedUploadPart::getEtag, ChunkedUploadPart::getSize)
+                .containsExactly(
+                        tuple(1, "etag-1-again", 50L),
+                        tuple(2, "etag-2", 100L));
+    }
+
+    @Test
+    @DisplayName("Should keep one row when copies of a chunk are acknowledged concurrently")
+    void shouldAcceptConcurrentCopiesOfChunk() {
+        UUID uploadId = UUID.randomUUID();
+        int copies = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(copies);
+        try {
+            List<CompletableFuture<Integer>> upserts = IntStream.range(0, copies)
+                    .mapToObj(copy -> CompletableFuture.supplyAsync(() -> {
+                        awaitQuietly(start);
+                        return repository.upsert(uploadId, 1, "etag-" + copy, 100);
+                    }, executor))
+                    .toList();
+            start.countDown();
+
+            assertThat(upserts).allSatisfy(upsert -> assertThat(upsert.join()).isEqualTo(1));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(repository.findByUploadIdOrderByPartNumber(uploadId)).singleElement()
+                .satisfies(part -> assertThat(part.getEtag()).startsWith("etag-"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
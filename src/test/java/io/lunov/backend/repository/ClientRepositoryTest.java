@@ -8,11 +8,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -156,4 +158,49 @@ public class ClientRepositoryTest {
         assertThat(updated.getEmail()).isEqualTo("newemail@example.com");
         assertThat(updated.getId()).isEqualTo(saved.getId());
     }
+
+    @Test
+    @DisplayName("Should walk all clients by keyset pages without gaps or repeats")
+    void shouldWalkClientsByKeysetPages() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(Client.builder()
+                    .name("Client " + i)
+                    .email("client" + i + "@example.com")
+                    .phoneNumber("00000000" + i)
+                    .sessions(List.of())
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<UUID> seen = new ArrayList<>();
+        List<Client> page = repository.findFirstPage(Limit.of(2));
+        while (!page.isEmpty()) {
+            page.forEach(client -> seen.add(client.getId()));
+            Client last = page.getLast();
+            page = repository.findPageAfter(last.getCreatedAt(), last.getId(), Limit.of(2));
+        }
+
+        // Postgres orders uuids differently from UUID.compareTo, so the reference order comes from one query
+        List<UUID> expected = repository.findFirstPage(Limit.of(10)).stream().map(Client::getId).toList();
+        assertThat(seen).hasSize(5).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("Should rank clients by trigram similarity of name or email")
+    void shouldSearchClientsFuzzy() {
+        repository.save(testClient);
+        repository.save(Client.builder()
+                .name("Jack Black")
+                .email("jack.black@example.com")
+                .phoneNumber("111222333")
+                .sessions(List.of())
+                .build());
+
+        List<Client> found = repository.searchFuzzy("jon doe", 10);
+
+        assertThat(found).isNotEmpty();
+        assertThat(found.getFirst().getName()).isEqualTo("John Doe");
+        assertThat(repository.searchFuzzy("jack.blak", 10)).extracting(Client::getName).contains("Jack Black");
+    }
 }
@@ -0,0 +1,172 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.*;
+import io.lunov.backend.util.mapper.ClientMapper;
+import io.lunov.backend.util.mapper.ClientMapperImpl;
+import io.lunov.backend.util.mapper.PhotoMapper;
+import io.lunov.backend.util.mapper.PhotoMapperImpl;
+import io.lunov.backend.util.mapper.SessionMapper;
+import io.lunov.backend.util.mapper.SessionMapperImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the SQL statements of each list read path, including the lazy
+ * associations its mapper walks. The counts must not grow with the number of rows.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=100"
+})
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SessionMapperImpl.class, ClientMapperImpl.class, PhotoMapperImpl.class})
+public class FetchPlanTest {
+
+    private static final int SESSIONS = 10;
+    private static final int PHOTOS_PER_SESSION = 3;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private ClientMapper clientMapper;
+
+    @Autowired
+    private PhotoMapper photoMapper;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        for (int c = 0; c < SESSIONS / 2; c++) {
+            Client client = entityManager.persist(Client.builder()
+                    .name("Client " + c)
+                    .email("client" + c + "@example.com")
+                    .sessions(new ArrayList<>())
+                    .build());
+            for (int s = 0; s < 2; s++) {
+                Session session = Session.builder()
+                        .name("Session " + c + s)
+                        .client(client)
+                        .accessType(SessionAccessType.PRIVATE)
+                        .accessCode("CODE" + c + s)
+                        .build();
+                entityManager.persist(session);
+                client.getSessions().add(session);
+                for (int p = 0; p < PHOTOS_PER_SESSION; p++) {
+                    Photo photo = Photo.builder()
+                            .filename("photo_" + c + s + p)
+                            .primarySession(session)
+                            .status(PhotoStatus.READY)
+                            .previewUrl("preview_" + c + s + p)
+                            .sizeBytes(1_000L)
+                            .renditions(new ArrayList<>(List.of(
+                                    PhotoRendition.builder().width(320).objectName("small").url("small").build(),
+                                    PhotoRendition.builder().width(1920).objectName("large").url("large").build())))
+                            .build();
+                    session.addPhoto(photo);
+                    entityManager.persist(photo);
+                }
+                sessionId = session.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Session list loads sessions, photos and renditions in a fixed number of statements")
+    void sessionListHasFixedStatementCount() {
+        var result = sessionRepository.findAll().stream().map(sessionMapper::toDTO).toList();
+
+        assertThat(result).hasSize(SESSIONS);
+        assertThat(result).allSatisfy(session -> assertThat(session.getPhotos()).hasSize(PHOTOS_PER_SESSION));
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Session summaries come from one aggregate statement without loading photos")
+    void sessionSummaryIsOneStatement() {
+        var result = sessionRepository.findFirstSummaryPage(Limit.of(SESSIONS));
+
+        assertThat(result).hasSize(SESSIONS);
+        assertThat(result).allSatisfy(summary -> {
+            assertThat(summary.getPhotoCount()).isEqualTo(PHOTOS_PER_SESSION);
+            assertThat(summary.getTotalBytes()).isEqualTo(PHOTOS_PER_SESSION * 1_000L);
+            assertThat(summary.getCoverUrl()).startsWith("preview_");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Client list loads clients with their sessions in one statement")
+    void clientListHasFixedStatementCount() {
+        var result = clientRepository.findAll().stream().map(clientMapper::toInfoDTO).toList();
+
+        assertThat(result).hasSize(SESSIONS / 2);
+        assertThat(result).allSatisfy(client -> assertThat(client.getSessions()).hasSize(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Photo list of a session does not load sessions row by row")
+    void photoListHasFixedStatementCount() {
+        var result = photoRepository.findBySessionId(sessionId).stream().map(photoMapper::toDto).toList();
+
+        assertThat(result).hasSize(PHOTOS_PER_SESSION);
+        assertThat(result).allSatisfy(photo -> {
+            assertThat(photo.getPrimarySessionId()).isEqualTo(sessionId);
+            assertThat(photo.getRenditions()).hasSize(2);
+        });
+        // photos, their sessions and their renditions: one statement each
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+}
@@ -0,0 +1,135 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ingests the same number of photos through the entity path and through
+ * {@link PhotoBatchRepository} and reports rows per second for both.
+ */
+@DataJpaTest(properties = "spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=true")
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PhotoBatchRepository.class)
+public class PhotoBatchRepositoryTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoBatchRepositoryTest.class);
+    private static final int PHOTOS = 500;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoBatchRepository batchRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Session jpaSession;
+    private Session jdbcSession;
+
+    @BeforeEach
+    void setUp() {
+        jpaSession = entityManager.persist(session("JPA"));
+        jdbcSession = entityManager.persist(session("JDBC"));
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("Batch insert writes photos, links and renditions and reports rows/sec against saveAll")
+    void compareIngestPaths() {
+        List<Photo> viaJpa = photos(jpaSession);
+        long started = System.nanoTime();
+        viaJpa.forEach(jpaSession::addPhoto);
+        photoRepository.saveAll(viaJpa);
+        entityManager.flush();
+        double jpaRate = rowsPerSecond(started);
+
+        List<Photo> viaJdbc = photos(jdbcSession);
+        started = System.nanoTime();
+        batchRepository.insert(jdbcSession.getId(), viaJdbc, List.of());
+        double jdbcRate = rowsPerSecond(started);
+
+        log.info("Photo ingest of {} photos: saveAll {} rows/s, batch insert {} rows/s",
+                PHOTOS, Math.round(jpaRate), Math.round(jdbcRate));
+
+        assertThat(count("SELECT COUNT(*) FROM sessions_photos WHERE session_id = ?", jdbcSession.getId()))
+                .isEqualTo(PHOTOS);
+        assertThat(count("SELECT COUNT(*) FROM photos WHERE primary_session_id = ?", jdbcSession.getId()))
+                .isEqualTo(PHOTOS);
+        assertThat(count("""
+                SELECT COUNT(*) FROM photo_renditions r JOIN photos p ON p.id = r.photo_id
+                WHERE p.primary_session_id = ?
+                """, jdbcSession.getId())).isEqualTo(PHOTOS * 2);
+
+        entityManager.clear();
+        assertThat(photoRepository.findBySessionId(jdbcSession.getId()))
+                .hasSize(PHOTOS)
+                .allSatisfy(photo -> assertThat(photo.getRenditions()).hasSize(2));
+    }
+
+    private static Session session(String name) {
+        return Session.builder()
+                .name(name)
+                .accessType(SessionAccessType.PRIVATE)
+                .accessCode("CODE-" + name)
+                .build();
+    }
+
+    private static List<Photo> photos(Session session) {
+        return new ArrayList<>(IntStream.range(0, PHOTOS)
+                .mapToObj(i -> Photo.builder()
+                        .filename("photo_" + UUID.randomUUID().toString().substring(0, 8))
+                        .originalUrl("original_" + i)
+                        .previewUrl("preview_" + i)
+                        .status(PhotoStatus.READY)
+                        .sizeBytes(1_000L)
+                        .primarySession(session)
+                        .renditions(new ArrayList<>(List.of(
+                                PhotoRendition.builder().width(320).objectName("small_" + i).url("small_" + i).build(),
+                                PhotoRendition.builder().width(1920).objectName("large_" + i).url("large_" + i).build())))
+                        .build())
+                .toList());
+    }
+
+    // a photo is three statements' worth of rows: the photo, its session link and its renditions
+    private static double rowsPerSecond(long started) {
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+        return PHOTOS * 4 / seconds;
+    }
+
+    private long count(String sql, UUID sessionId) {
+        return jdbcTemplate.queryForObject(sql, Long.class, sessionId);
+    }
+}
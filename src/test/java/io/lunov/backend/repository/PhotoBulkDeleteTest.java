@@ -0,0 +1,133 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the set-based deletion statements of {@link PhotoRepository} and
+ * {@link SessionRepository} against a session that shares one photo with another.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class PhotoBulkDeleteTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Session session;
+    private Session other;
+    private List<Photo> photos;
+
+    @BeforeEach
+    void setUp() {
+        session = entityManager.persist(session("Wedding"));
+        other = entityManager.persist(session("Portfolio"));
+        photos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Photo photo = entityManager.persist(photo(session, i));
+            session.addPhoto(photo);
+            photos.add(photo);
+        }
+        // the first photo is shared, e.g. added to the portfolio
+        other.addPhoto(photos.getFirst());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Deleting selected photos removes exclusive ones and only unlinks shared ones")
+    void shouldDeleteSelectedPhotos() {
+        List<UUID> selected = List.of(photos.get(0).getId(), photos.get(1).getId());
+
+        var objects = photoRepository.findObjectsExclusiveToSession(session.getId(), selected);
+        int deleted = photoRepository.deleteExclusiveToSession(session.getId(), selected);
+        int unlinked = photoRepository.unlinkFromSession(session.getId(), selected);
+
+        assertThat(objects).extracting(PhotoRepository.StoredObject::getObjectName)
+                .containsExactlyInAnyOrder("photo_00000001_original.jpg", "small_1");
+        assertThat(objects).extracting(PhotoRepository.StoredObject::getBucket).containsOnly(session.getId().toString());
+        assertThat(deleted).isEqualTo(1);
+        assertThat(unlinked).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM sessions_photos WHERE session_id = ?", session.getId())).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM sessions_photos WHERE session_id = ?", other.getId())).isEqualTo(1);
+        assertThat(photoRepository.findAllById(selected)).extracting(Photo::getId)
+                .containsExactly(photos.getFirst().getId());
+        assertThat(count("SELECT COUNT(*) FROM photo_renditions WHERE photo_id = ?", photos.get(1).getId())).isZero();
+    }
+
+    @Test
+    @DisplayName("Deleting a session removes its exclusive photos and keeps shared ones without a primary session")
+    void shouldDeleteSession() {
+        assertThat(photoRepository.findObjectsExclusiveToSession(session.getId())).hasSize(4);
+        assertThat(photoRepository.deleteExclusiveToSession(session.getId())).isEqualTo(2);
+        assertThat(photoRepository.unlinkAllFromSession(session.getId())).isEqualTo(1);
+        assertThat(photoRepository.countByBucket(session.getId().toString())).isEqualTo(1);
+        assertThat(photoRepository.clearPrimarySession(session.getId())).isEqualTo(1);
+        assertThat(sessionRepository.deleteDirectlyById(session.getId())).isEqualTo(1);
+
+        assertThat(sessionRepository.existsById(session.getId())).isFalse();
+        assertThat(photoRepository.findAll()).extracting(Photo::getId).containsExactly(photos.getFirst().getId());
+        assertThat(count("SELECT COUNT(*) FROM photo_renditions WHERE photo_id = ?", photos.getFirst().getId()))
+                .isEqualTo(1);
+        assertThat(photoRepository.findBySessionId(other.getId())).hasSize(1);
+    }
+
+    private static Session session(String name) {
+        return Session.builder()
+                .name(name)
+                .accessType(SessionAccessType.PRIVATE)
+                .accessCode("CODE-" + name)
+                .build();
+    }
+
+    private static Photo photo(Session session, int i) {
+        return Photo.builder()
+                .filename("photo_0000000" + i)
+                .bucket(session.getId().toString())
+                .objectName("photo_0000000" + i + "_original.jpg")
+                .originalUrl("original_" + i)
+                .status(PhotoStatus.READY)
+                .primarySession(session)
+                .renditions(new ArrayList<>(List.of(
+                        PhotoRendition.builder().width(320).objectName("small_" + i).url("small_" + i).build())))
+                .build();
+    }
+
+    private long count(String sql, UUID id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
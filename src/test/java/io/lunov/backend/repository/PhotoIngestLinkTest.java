@@ -0,0 +1,249 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.dto.image.ImageUploadResponse;
+import io.lunov.backend.model.dto.photo.PhotoUploadDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.model.entity.*;
+import io.lunov.backend.service.ImageService;
+import io.lunov.backend.service.PortfolioService;
+import io.lunov.backend.service.PreviewService;
+import io.lunov.backend.service.SessionService;
+import io.lunov.backend.service.impl.ImageServiceImpl;
+import io.lunov.backend.service.impl.PhotoServiceImpl;
+import io.lunov.backend.service.impl.ZipArchiveAssembler;
+import io.lunov.backend.util.mapper.PhotoMapper;
+import io.lunov.backend.util.mapper.PhotoMapperImpl;
+import io.lunov.backend.util.pagination.KeysetPaging;
+import io.lunov.backend.util.storage.BucketRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import jakarta.persistence.EntityManager;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs a mixed upload batch through {@link PhotoServiceImpl} against a real database and
+ * commits it: new photos and reused photos of other sessions must all end up linked,
+ * however Hibernate flushes the session around the JDBC batch, and archived from the
+ * buckets they are stored in.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PhotoBatchRepository.class, PhotoMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PhotoIngestLinkTest {
+
+    // content hash each uploaded file name reports
+    private static final Map<String, String> HASHES = Map.of(
+            "new-1.jpg", "hash-new-1",
+            "new-2.jpg", "hash-new-2",
+            "new-1-again.jpg", "hash-new-1",
+            "from-other-session.jpg", "hash-other",
+            "already-in-session.jpg", "hash-own");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoBatchRepository batchRepository;
+
+    @Autowired
+    private PhotoMapper photoMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService uploadExecutor;
+    private PhotoServiceImpl photoService;
+    private Session other;
+    private Session target;
+    private Photo otherPhoto;
+    private Photo ownPhoto;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        uploadExecutor = Executors.newFixedThreadPool(4);
+
+        ImageService imageService = mock(ImageService.class);
+        when(imageService.uploadImageWithPreview(any(UUID.class), any(PhotoUploadDTO.class))).thenAnswer(invocation -> {
+            PhotoUploadDTO upload = invocation.getArgument(1);
+            return ImageUploadResponse.builder()
+                    .isSuccess(true)
+                    .originalFileName(upload.getFileName() + "_original.jpg")
+                    .contentHash(HASHES.get(upload.getFile().getOriginalFilename()))
+                    .renditions(List.of())
+                    .build();
+        });
+        SessionService sessionService = mock(SessionService.class);
+        when(sessionService.getById(any(UUID.class)))
+                .thenAnswer(invocation -> entityManager.find(Session.class, invocation.getArgument(0)));
+
+        photoService = new PhotoServiceImpl(imageService, sessionService, photoRepository, batchRepository,
+                photoMapper, uploadExecutor, transactionTemplate, mock(PreviewService.class),
+                mock(PortfolioService.class), new KeysetPaging(), new SimpleMeterRegistry());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            other = session("OTHER");
+            target = session("TARGET");
+            entityManager.persist(other);
+            entityManager.persist(target);
+            otherPhoto = photo(other, "hash-other");
+            ownPhoto = photo(target, "hash-own");
+            entityManager.persist(otherPhoto);
+            entityManager.persist(ownPhoto);
+            other.addPhoto(otherPhoto);
+            target.addPhoto(ownPhoto);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdownNow();
+        jdbcTemplate.update("DELETE FROM sessions_photos");
+        jdbcTemplate.update("DELETE FROM photo_renditions");
+        jdbcTemplate.update("DELETE FROM photos");
+        jdbcTemplate.update("DELETE FROM sessions");
+    }
+
+    @Test
+    @DisplayName("Should keep every link of a mixed batch of new and reused photos after commit")
+    void shouldLinkNewAndReusedPhotos() {
+        List<PhotoUploadResultDTO> results = photoService.saveMultiple(target.getId(), files(
+                "new-1.jpg", "new-2.jpg", "new-1-again.jpg", "from-other-session.jpg", "already-in-session.jpg"));
+
+        assertThat(results).allMatch(PhotoUploadResultDTO::isSuccess);
+        assertThat(results).filteredOn(PhotoUploadResultDTO::isDeduplicated).hasSize(3);
+
+        List<UUID> linked = jdbcTemplate.queryForList(
+                "SELECT photo_id FROM sessions_photos WHERE session_id = ?", UUID.class, target.getId());
+        assertThat(linked)
+                .doesNotHaveDuplicates()
+                .hasSize(4)
+                .contains(otherPhoto.getId(), ownPhoto.getId());
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT photo_id FROM sessions_photos WHERE session_id = ?", UUID.class, other.getId()))
+                .containsExactly(otherPhoto.getId());
+        assertThat(transactionTemplate.execute(status -> photoRepository.findBySessionId(target.getId())))
+                .extracting(Photo::getId)
+                .containsExactlyInAnyOrderElementsOf(linked);
+    }
+
+    @Test
+    @DisplayName("Should archive a photo reused from another session from that session's bucket")
+    void shouldArchiveReusedPhotoFromItsBucket() throws Exception {
+        photoService.saveMultiple(target.getId(), files("from-other-session.jpg"));
+
+        MinioClient minioClient = mock(MinioClient.class);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            byte[] content = (args.bucket() + "/" + args.object()).getBytes(StandardCharsets.UTF_8);
+            return new GetObjectResponse(Headers.of(), args.bucket(), null, args.object(),
+                    new ByteArrayInputStream(content));
+        });
+        ZipArchiveAssembler assembler = new ZipArchiveAssembler(minioClient, uploadExecutor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(assembler, "fetchConcurrency", 2);
+        ReflectionTestUtils.setField(assembler, "readAheadSize", DataSize.ofMegabytes(1));
+        ImageServiceImpl imageService = new ImageServiceImpl(minioClient, assembler, uploadExecutor, null,
+                new BucketRegistry(minioClient), null);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        imageService.writeZipArchive(target.getId().toString(),
+                photoRepository.findOriginalsBySessionId(target.getId()), archive);
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        String ownOriginal = ownPhoto.getFilename() + "_original.jpg";
+        String otherOriginal = otherPhoto.getFilename() + "_original.jpg";
+        assertThat(entries).containsOnly(
+                entry(ownOriginal, target.getId() + "/" + ownOriginal),
+                entry(otherOriginal, other.getId() + "/" + otherOriginal));
+    }
+
+    private static Session session(String name) {
+        return Session.builder()
+                .name(name)
+                .accessType(SessionAccessType.PRIVATE)
+                .accessCode("CODE-" + name)
+                .build();
+    }
+
+    private static Photo photo(Session session, String contentHash) {
+        return Photo.builder()
+                .filename("photo_" + UUID.randomUUID().toString().substring(0, 8))
+                .bucket(session.getId().toString())
+                .contentHash(contentHash)
+                .sizeBytes(1024L)
+                .status(PhotoStatus.READY)
+                .primarySession(session)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static List<MultipartFile> files(String... names) {
+        return Arrays.stream(names)
+                .map(name -> (MultipartFile) new MockMultipartFile("files", name, "image/jpeg", new byte[]{1, 2, 3}))
+                .toList();
+    }
+}
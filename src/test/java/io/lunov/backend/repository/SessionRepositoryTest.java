@@ -0,0 +1,151 @@
+package io.lunov.backend.repository;
+
+import io.lunov.backend.model.entity.Client;
+import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoStatus;
+import io.lunov.backend.model.entity.Session;
+import io.lunov.backend.model.entity.SessionAccessType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class SessionRepositoryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private SessionRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Session smithWedding;
+    private Session smythWeding;
+    private Session brownFamily;
+    private Session kowalskaWedding;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+
+        Client anna = entityManager.persist(client("Anna Kowalska", "anna.k@example.com"));
+        Client mark = entityManager.persist(client("Mark Brown", "mark.brown@example.com"));
+        smithWedding = entityManager.persist(session("Wedding Smith", anna));
+        smythWeding = entityManager.persist(session("Weding Smyth", null));
+        brownFamily = entityManager.persist(session("Family portrait", mark));
+        kowalskaWedding = entityManager.persist(session("Kowalska wedding", null));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Should match session names, closest first")
+    void shouldMatchSessionNamesBySimilarity() {
+        List<Session> found = repository.searchFuzzy("wedding smith", 10);
+
+        assertThat(found).extracting(Session::getId)
+                .containsExactly(smithWedding.getId(), smythWeding.getId(), kowalskaWedding.getId());
+    }
+
+    @Test
+    @DisplayName("Should match sessions through their client and rank them with name matches")
+    void shouldMatchSessionsThroughClient() {
+        // "Anna Kowalska" is closer to the query than the session name "Kowalska wedding"
+        List<Session> found = repository.searchFuzzy("kowalska", 10);
+
+        assertThat(found).extracting(Session::getId)
+                .containsExactly(smithWedding.getId(), kowalskaWedding.getId());
+    }
+
+    @Test
+    @DisplayName("Should return a session once when its client's name and email both match")
+    void shouldReturnSessionOnce() {
+        List<Session> found = repository.searchFuzzy("mark brown", 10);
+
+        assertThat(found).extracting(Session::getId).containsExactly(brownFamily.getId());
+    }
+
+    @Test
+    @DisplayName("Should keep only the best matches up to the limit")
+    void shouldApplyLimitAfterRanking() {
+        List<Session> found = repository.searchFuzzy("wedding smith", 1);
+
+        assertThat(found).extracting(Session::getId).containsExactly(smithWedding.getId());
+    }
+
+    @Test
+    @DisplayName("Should bump the content version of every session listing one of the photos")
+    void shouldBumpVersionsOfSessionsListingPhotos() {
+        Session wedding = entityManager.find(Session.class, smithWedding.getId());
+        Session family = entityManager.find(Session.class, brownFamily.getId());
+        Photo shared = entityManager.persist(photo(wedding));
+        wedding.addPhoto(shared);
+        family.addPhoto(shared);
+        entityManager.flush();
+
+        int updated = repository.incrementContentVersionByPhotoIds(List.of(shared.getId()));
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(version(smithWedding)).isEqualTo(1);
+        assertThat(version(brownFamily)).isEqualTo(1);
+        assertThat(version(kowalskaWedding)).isZero();
+    }
+
+    private long version(Session session) {
+        return repository.findVersionById(session.getId()).orElseThrow().getContentVersion();
+    }
+
+    private static Photo photo(Session session) {
+        return Photo.builder()
+                .filename("photo_" + UUID.randomUUID().toString().substring(0, 8))
+                .bucket(session.getId().toString())
+                .status(PhotoStatus.READY)
+                .primarySession(session)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static Client client(String name, String email) {
+        return Client.builder()
+                .name(name)
+                .email(email)
+                .phoneNumber("123456789")
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static Session session(String name, Client client) {
+        return Session.builder()
+                .name(name)
+                .client(client)
+                .accessType(SessionAccessType.PRIVATE)
+                .accessCode(UUID.randomUUID().toString().substring(0, 8))
+                .build();
+    }
+}
@@ -0,0 +1,268 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.entity.ChunkedUpload;
+import io.lunov.backend.model.entity.ChunkedUploadPart;
+import io.lunov.backend.model.entity.ChunkedUploadStatus;
+import io.lunov.backend.repository.ChunkedUploadPartRepository;
+import io.lunov.backend.repository.ChunkedUploadRepository;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.service.impl.ChunkedUploadServiceImpl;
+import io.lunov.backend.util.storage.MultipartMinioClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+    private static final long CHUNK_SIZE = DataSize.ofMegabytes(5).toBytes();
+
+    @Mock
+    private MultipartMinioClient multipartClient;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private PhotoService photoService;
+
+    @Mock
+    private ChunkedUploadRepository repository;
+
+    @Mock
+    private ChunkedUploadPartRepository partRepository;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    private ChunkedUploadServiceImpl service;
+    private ChunkedUpload upload;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChunkedUploadServiceImpl(multipartClient, sessionService, photoService, repository, partRepository,
+                photoRepository);
+        ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(CHUNK_SIZE));
+        ReflectionTestUtils.setField(service, "expireAfter", Duration.ofDays(1));
+
+        upload = ChunkedUpload.builder()
+                .id(UUID.randomUUID())
+                .sessionId(UUID.randomUUID())
+                .fileName("photo_test")
+                .storageUploadId("storage-upload")
+                .totalSize(CHUNK_SIZE * 2 + 100)
+                .chunkSize(CHUNK_SIZE)
+                .status(ChunkedUploadStatus.ACTIVE)
+                .build();
+        lenient().when(repository.findById(upload.getId())).thenReturn(Optional.of(upload));
+    }
+
+    @Test
+    @DisplayName("Last chunk carries the remainder and is stored as its own part")
+    void uploadChunk_lastChunk_storesRemainder() throws Exception {
+        when(multipartClient.uploadPart(anyString(), anyString(), anyString(), eq(3), any())).thenReturn("etag-3");
+
+        service.uploadChunk(upload.getId(), 3, new ByteArrayInputStream(new byte[100]));
+
+        assertThat(upload.getTotalChunks()).isEqualTo(3);
+        verify(multipartClient).uploadPart(eq(upload.getSessionId().toString()), eq("photo_test_original.jpg"),
+                eq("storage-upload"), eq(3), argThat(data -> data.length == 100));
+        verify(partRepository).upsert(upload.getId(), 3, "etag-3", 100);
+    }
+
+    @Test
+    @DisplayName("Re-sent chunk is stored again and replaces the acknowledged part in one upsert")
+    void uploadChunk_resent_replacesPart() throws Exception {
+        when(multipartClient.uploadPart(anyString(), anyString(), anyString(), eq(3), any()))
+                .thenReturn("etag-3", "etag-3-again");
+
+        service.uploadChunk(upload.getId(), 3, new ByteArrayInputStream(new byte[100]));
+        service.uploadChunk(upload.getId(), 3, new ByteArrayInputStream(new byte[100]));
+
+        InOrder inOrder = inOrder(partRepository);
+        inOrder.verify(partRepository).upsert(upload.getId(), 3, "etag-3", 100);
+        inOrder.verify(partRepository).upsert(upload.getId(), 3, "etag-3-again", 100);
+        verify(partRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Chunk with wrong length is rejected before it reaches storage")
+    void uploadChunk_wrongLength_rejected() throws Exception {
+        assertThatThrownBy(() -> service.uploadChunk(upload.getId(), 1, new ByteArrayInputStream(new byte[100])))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(multipartClient, never()).uploadPart(anyString(), anyString(), anyString(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Upload with missing chunks cannot be completed")
+    void complete_missingChunks_rejected() throws Exception {
+        when(partRepository.findByUploadIdOrderByPartNumber(upload.getId())).thenReturn(List.of(
+                ChunkedUploadPart.builder().partNumber(1).etag("etag-1").size(CHUNK_SIZE).build()));
+
+        assertThatThrownBy(() -> service.complete(upload.getId()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("1 of 3");
+
+        verify(multipartClient, never()).completeMultipartUpload(anyString(), anyString(), anyString(), any());
+        verifyNoInteractions(photoService);
+    }
+
+    @Test
+    @DisplayName("Completion that lost the claim to a concurrent one stores nothing")
+    void complete_alreadyClaimed_rejected() throws Exception {
+        when(partRepository.findByUploadIdOrderByPartNumber(upload.getId())).thenReturn(allParts());
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.ACTIVE, ChunkedUploadStatus.COMPLETING))
+                .thenReturn(0);
+
+        assertThatThrownBy(() -> service.complete(upload.getId()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already being completed");
+
+        verify(multipartClient, never()).completeMultipartUpload(anyString(), anyString(), anyString(), any());
+        verifyNoInteractions(photoService);
+    }
+
+    @Test
+    @DisplayName("Failed storage completion releases the claim for a retry")
+    void complete_storageFailure_releasesClaim() throws Exception {
+        when(partRepository.findByUploadIdOrderByPartNumber(upload.getId())).thenReturn(allParts());
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.ACTIVE, ChunkedUploadStatus.COMPLETING))
+                .thenReturn(1);
+        doThrow(new IllegalStateException("storage down"))
+                .when(multipartClient).completeMultipartUpload(anyString(), anyString(), anyString(), any());
+
+        assertThatThrownBy(() -> service.complete(upload.getId())).isInstanceOf(RuntimeException.class);
+
+        verify(repository).updateStatus(upload.getId(), ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.ACTIVE);
+        verifyNoInteractions(photoService);
+    }
+
+    @Test
+    @DisplayName("Failed photo registration leaves the assembled upload STORED instead of COMPLETED")
+    void complete_registrationFailure_leavesUploadStored() throws Exception {
+        when(partRepository.findByUploadIdOrderByPartNumber(upload.getId())).thenReturn(allParts());
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.ACTIVE, ChunkedUploadStatus.COMPLETING))
+                .thenReturn(1);
+        when(photoService.registerStoredOriginals(eq(upload.getSessionId()), anyMap()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertThatThrownBy(() -> service.complete(upload.getId())).hasMessage("database down");
+
+        verify(multipartClient).completeMultipartUpload(anyString(), anyString(), anyString(), any());
+        verify(repository).updateStatus(upload.getId(), ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.STORED);
+        verify(repository, never())
+                .updateStatus(upload.getId(), ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Retried completion of a STORED upload registers the photo without assembling the parts again")
+    void complete_storedUpload_registersPhoto() throws Exception {
+        upload.setStatus(ChunkedUploadStatus.STORED);
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.STORED, ChunkedUploadStatus.COMPLETING))
+                .thenReturn(1);
+        PhotoInfoDTO photo = PhotoInfoDTO.builder().id(UUID.randomUUID()).build();
+        when(photoService.registerStoredOriginals(upload.getSessionId(), Map.of("photo_test", upload.getTotalSize())))
+                .thenReturn(List.of(photo));
+
+        assertThat(service.complete(upload.getId())).isSameAs(photo);
+
+        verify(multipartClient, never()).completeMultipartUpload(anyString(), anyString(), anyString(), any());
+        verify(repository).updateStatus(upload.getId(), ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Expired active uploads are aborted in storage and deleted with their parts")
+    void deleteExpired_abortsAbandonedUploads() throws Exception {
+        when(repository.findByStatusChangedAtBefore(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(upload));
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.ACTIVE, ChunkedUploadStatus.ABORTED))
+                .thenReturn(1);
+
+        service.deleteExpired();
+
+        verify(multipartClient).abortMultipartUpload(upload.getSessionId().toString(), "photo_test_original.jpg",
+                "storage-upload");
+        verify(partRepository).deleteByUploadId(upload.getId());
+        verify(repository).deleteById(upload.getId());
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    @DisplayName("Completion that died midway is aborted and its unregistered original deleted")
+    void deleteExpired_cleansUpStaleCompletion() throws Exception {
+        upload.setStatus(ChunkedUploadStatus.COMPLETING);
+        when(repository.findByStatusChangedAtBefore(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(upload));
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.COMPLETING, ChunkedUploadStatus.ABORTED))
+                .thenReturn(1);
+        when(photoRepository.existsByBucketAndFilename(upload.getSessionId().toString(), "photo_test"))
+                .thenReturn(false);
+
+        service.deleteExpired();
+
+        verify(multipartClient).abortMultipartUpload(upload.getSessionId().toString(), "photo_test_original.jpg",
+                "storage-upload");
+        verify(multipartClient).deleteObject(upload.getSessionId().toString(), "photo_test_original.jpg");
+        verify(repository).deleteById(upload.getId());
+    }
+
+    @Test
+    @DisplayName("Expired STORED upload whose photo got registered keeps the original")
+    void deleteExpired_keepsRegisteredOriginal() throws Exception {
+        upload.setStatus(ChunkedUploadStatus.STORED);
+        when(repository.findByStatusChangedAtBefore(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(upload));
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.STORED, ChunkedUploadStatus.ABORTED))
+                .thenReturn(1);
+        when(photoRepository.existsByBucketAndFilename(upload.getSessionId().toString(), "photo_test"))
+                .thenReturn(true);
+
+        service.deleteExpired();
+
+        verifyNoInteractions(multipartClient);
+        verify(repository).deleteById(upload.getId());
+    }
+
+    @Test
+    @DisplayName("Expired upload claimed by a running completion is left alone")
+    void deleteExpired_skipsUploadBeingCompleted() throws Exception {
+        when(repository.findByStatusChangedAtBefore(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(upload));
+        when(repository.updateStatus(upload.getId(), ChunkedUploadStatus.ACTIVE, ChunkedUploadStatus.ABORTED))
+                .thenReturn(0);
+
+        service.deleteExpired();
+
+        verifyNoInteractions(multipartClient, partRepository);
+        verify(repository, never()).deleteById(any());
+    }
+
+    private List<ChunkedUploadPart> allParts() {
+        return List.of(
+                ChunkedUploadPart.builder().partNumber(1).etag("etag-1").size(CHUNK_SIZE).build(),
+                ChunkedUploadPart.builder().partNumber(2).etag("etag-2").size(CHUNK_SIZE).build(),
+                ChunkedUploadPart.builder().partNumber(3).etag("etag-3").size(100).build());
+    }
+}
@@ -8,6 +8,7 @@ import io.lunov.backend.model.exception.ClientNotFoundException;
 import io.lunov.backend.repository.ClientRepository;
 import io.lunov.backend.service.impl.ClientServiceImpl;
 import io.lunov.backend.util.mapper.ClientMapper;
+import io.lunov.backend.util.security.LoginAttemptGuard;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -36,6 +37,9 @@ class ClientServiceTest {
     @Mock
     private ClientMapper clientMapper;
 
+    @Mock
+    private LoginAttemptGuard loginGuard;
+
     @InjectMocks
     private ClientServiceImpl  clientService;
 
@@ -0,0 +1,219 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.image.ImageUploadResponse;
+import io.lunov.backend.model.dto.image.RenditionDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadDTO;
+import io.lunov.backend.service.impl.ImageServiceImpl;
+import io.lunov.backend.service.impl.PreviewRenderer;
+import io.lunov.backend.service.impl.ZipArchiveAssembler;
+import io.lunov.backend.util.storage.BucketRegistry;
+import io.lunov.backend.util.storage.PreviewDiskCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageServiceTest {
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private ZipArchiveAssembler zipArchiveAssembler;
+
+    @Mock
+    private PreviewDiskCache previewDiskCache;
+
+    private ExecutorService imageExecutor;
+    private ImageServiceImpl imageService;
+    private Map<String, byte[]> storedObjects;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        imageExecutor = Executors.newFixedThreadPool(2);
+        PreviewRenderer previewRenderer = new PreviewRenderer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(previewRenderer, "renditionWidths", List.of(320, 800, 1920, 2560));
+        ReflectionTestUtils.setField(previewRenderer, "defaultWidth", 1920);
+        ReflectionTestUtils.setField(previewRenderer, "quality", 0.85);
+        imageService = new ImageServiceImpl(minioClient, zipArchiveAssembler, imageExecutor, previewRenderer,
+                new BucketRegistry(minioClient), previewDiskCache);
+        storedObjects = new LinkedHashMap<>();
+
+        lenient().when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        lenient().when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            storedObjects.put(args.object(), args.stream().readAllBytes());
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should read each uploaded file only once")
+    void shouldReadUploadOnlyOnce() throws Exception {
+        byte[] jpeg = jpeg(2400, 1600);
+        CountingMultipartFile file = new CountingMultipartFile(jpeg);
+
+        ImageUploadResponse response = imageService.uploadImageWithPreview(UUID.randomUUID(),
+                PhotoUploadDTO.builder().fileName("photo_test").file(file).build());
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(file.getOpenCount()).isEqualTo(1);
+        assertThat(file.getBytesRead()).isEqualTo(jpeg.length);
+        assertThat(storedObjects.get("photo_test_original.jpg")).isEqualTo(jpeg);
+
+    }
+
+    @Test
+    @DisplayName("Should store every rendition under its own key without upscaling")
+    void shouldStoreRenditionLadder() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "photo.jpg", "image/jpeg", jpeg(2400, 1600));
+
+        ImageUploadResponse response = imageService.uploadImageWithPreview(UUID.randomUUID(),
+                PhotoUploadDTO.builder().fileName("photo_test").file(file).build());
+
+        assertThat(response.getRenditions())
+                .extracting(RenditionDTO::getWidth)
+                .containsExactly(320, 800, 1920, 2560);
+        assertThat(response.getPreviewFileName()).isEqualTo("photo_test_1920.jpg");
+        assertThat(widthOf("photo_test_320.jpg")).isEqualTo(320);
+        assertThat(widthOf("photo_test_800.jpg")).isEqualTo(800);
+        assertThat(widthOf("photo_test_1920.jpg")).isEqualTo(1920);
+        assertThat(widthOf("photo_test_2560.jpg")).isEqualTo(2400);
+    }
+
+    @Test
+    @DisplayName("Should store one object for the widths a small source does not reach")
+    void shouldPointLargerRenditionsToOneObject() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "photo.jpg", "image/jpeg", jpeg(600, 400));
+
+        ImageUploadResponse response = imageService.uploadImageWithPreview(UUID.randomUUID(),
+                PhotoUploadDTO.builder().fileName("photo_test").file(file).build());
+
+        assertThat(response.getRenditions())
+                .extracting(RenditionDTO::getWidth, RenditionDTO::getFileName)
+                .containsExactly(
+                        tuple(320, "photo_test_320.jpg"),
+                        tuple(800, "photo_test_800.jpg"),
+                        tuple(1920, "photo_test_800.jpg"),
+                        tuple(2560, "photo_test_800.jpg"));
+        assertThat(storedObjects).doesNotContainKeys("photo_test_1920.jpg", "photo_test_2560.jpg");
+        assertThat(widthOf("photo_test_800.jpg")).isEqualTo(600);
+    }
+
+    @Test
+    @DisplayName("Should fail a delete naming the keys storage did not remove")
+    void shouldReportObjectsNotDeleted() {
+        DeleteError error = mock(DeleteError.class);
+        when(error.objectName()).thenReturn("photo_test_800.jpg");
+        when(error.message()).thenReturn("Access Denied");
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of(new Result<>(error)));
+
+        assertThatThrownBy(() -> imageService.deleteObjects("bucket",
+                List.of("photo_test_original.jpg", "photo_test_800.jpg")))
+                .hasMessageContaining("1 of 2")
+                .hasMessageContaining("photo_test_800.jpg")
+                .hasMessageNotContaining("photo_test_original.jpg");
+        verify(previewDiskCache).invalidate("bucket", "photo_test_original.jpg");
+    }
+
+    private int widthOf(String objectName) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(storedObjects.get(objectName))).getWidth();
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", output);
+        return output.toByteArray();
+    }
+
+    private static class CountingMultipartFile extends MockMultipartFile {
+        private int openCount;
+        private long bytesRead;
+
+        CountingMultipartFile(byte[] content) {
+            super("files", "photo.jpg", "image/jpeg", content);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            openCount++;
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        bytesRead++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        bytesRead += read;
+                    }
+                    return read;
+                }
+            };
+        }
+
+        int getOpenCount() {
+            return openCount;
+        }
+
+        long getBytesRead() {
+            return bytesRead;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.BulkDeleteResultDTO;
+import io.lunov.backend.model.entity.RetainedBucket;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.RetainedBucketRepository;
+import io.lunov.backend.repository.SessionRepository;
+import io.lunov.backend.service.impl.PhotoBulkDeleteServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoBulkDeleteServiceTest {
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PortfolioService portfolioService;
+
+    @Mock
+    private RetainedBucketRepository retainedBucketRepository;
+
+    private PhotoBulkDeleteServiceImpl service;
+    private UUID sessionId;
+    private String bucket;
+
+    @BeforeEach
+    void setUp() {
+        service = new PhotoBulkDeleteServiceImpl(photoRepository, sessionRepository, imageService,
+                transactionTemplate, portfolioService, retainedBucketRepository);
+        sessionId = UUID.randomUUID();
+        bucket = sessionId.toString();
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(sessionRepository.existsById(sessionId)).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Should bump the content version of every session listing a photo before unlinking it")
+    void shouldBumpVersionsBeforeDeletingPhotos() {
+        UUID photoId = UUID.randomUUID();
+
+        service.deletePhotos(sessionId, List.of(photoId));
+
+        InOrder inOrder = inOrder(sessionRepository, photoRepository);
+        inOrder.verify(sessionRepository).incrementContentVersionByPhotoIds(Set.of(photoId));
+        inOrder.verify(photoRepository).unlinkFromSession(sessionId, Set.of(photoId));
+    }
+
+    @Test
+    @DisplayName("Should count a deleted photo as deleted only, not as unlinked as well")
+    void shouldCountDeletedAndUnlinkedPhotosApart() {
+        Set<UUID> photoIds = Set.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(photoRepository.deleteExclusiveToSession(sessionId, photoIds)).thenReturn(2);
+        when(photoRepository.unlinkFromSession(sessionId, photoIds)).thenReturn(1);
+
+        BulkDeleteResultDTO result = service.deletePhotos(sessionId, photoIds);
+
+        assertThat(result.getDeleted()).isEqualTo(2);
+        assertThat(result.getUnlinked()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep and record the bucket of a deleted session while shared photos live in it")
+    void shouldRetainBucketInUse() {
+        when(photoRepository.countByBucket(bucket)).thenReturn(1L);
+
+        service.deleteSession(sessionId);
+
+        verify(retainedBucketRepository).save(argThat(retained -> retained.getName().equals(bucket)));
+        verify(imageService, never()).deleteBucket(anyString());
+    }
+
+    @Test
+    @DisplayName("Should delete the bucket of a deleted session right away when nothing else uses it")
+    void shouldDeleteUnusedBucket() {
+        when(photoRepository.countByBucket(bucket)).thenReturn(0L);
+
+        service.deleteSession(sessionId);
+
+        verify(imageService).deleteBucket(bucket);
+        verifyNoInteractions(retainedBucketRepository);
+    }
+
+    @Test
+    @DisplayName("Should hand the bucket of a deleted session to the background check when deleting it fails")
+    void shouldRetainBucketThatFailedToDelete() {
+        when(photoRepository.countByBucket(bucket)).thenReturn(0L);
+        doThrow(new RuntimeException("Failed to delete 1 of 3 objects: photo_1_original.jpg"))
+                .when(imageService).deleteBucket(bucket);
+
+        service.deleteSession(sessionId);
+
+        verify(retainedBucketRepository).save(argThat(retained -> retained.getName().equals(bucket)));
+    }
+
+    @Test
+    @DisplayName("Should delete a retained bucket once its last photo is gone and keep the others")
+    void shouldDeleteReleasedBuckets() {
+        when(retainedBucketRepository.findAll()).thenReturn(List.of(
+                RetainedBucket.builder().name("released").build(),
+                RetainedBucket.builder().name("shared").build()));
+        when(photoRepository.countByBucket("released")).thenReturn(0L);
+        when(photoRepository.countByBucket("shared")).thenReturn(2L);
+
+        service.deleteReleasedBuckets();
+
+        verify(imageService).deleteBucket("released");
+        verify(retainedBucketRepository).deleteById("released");
+        verify(imageService, never()).deleteBucket("shared");
+        verify(retainedBucketRepository, never()).deleteById("shared");
+    }
+
+    @Test
+    @DisplayName("Should keep the record of a retained bucket that could not be deleted")
+    void shouldRetryFailedBucketDeletion() {
+        when(retainedBucketRepository.findAll()).thenReturn(List.of(RetainedBucket.builder().name("released").build()));
+        when(photoRepository.countByBucket("released")).thenReturn(0L);
+        doThrow(new RuntimeException("storage down")).when(imageService).deleteBucket("released");
+
+        service.deleteReleasedBuckets();
+
+        verify(retainedBucketRepository, never()).deleteById(anyString());
+    }
+}
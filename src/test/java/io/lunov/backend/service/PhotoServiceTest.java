@@ -0,0 +1,191 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.image.ImageUploadResponse;
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.Session;
+import io.lunov.backend.repository.PhotoBatchRepository;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.service.impl.PhotoServiceImpl;
+import io.lunov.backend.util.mapper.PhotoMapper;
+import io.lunov.backend.util.pagination.KeysetPaging;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoServiceTest {
+
+    private static final long UPLOAD_MILLIS = 300;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private PhotoBatchRepository photoBatchRepository;
+
+    @Mock
+    private PhotoMapper photoMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PreviewService previewService;
+
+    @Mock
+    private PortfolioService portfolioService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService uploadExecutor;
+    private PhotoServiceImpl photoService;
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        uploadExecutor = Executors.newFixedThreadPool(16, Thread.ofVirtual().factory());
+        photoService = new PhotoServiceImpl(imageService, sessionService, photoRepository, photoBatchRepository, photoMapper,
+                uploadExecutor, transactionTemplate, previewService, portfolioService, new KeysetPaging(), meterRegistry);
+        sessionId = UUID.randomUUID();
+
+        when(sessionService.getById(sessionId)).thenReturn(Session.builder().id(sessionId).build());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should upload a batch in parallel and save it with one batch insert")
+    void shouldUploadBatchInParallel() {
+        when(imageService.uploadImageWithPreview(eq(sessionId), any(PhotoUploadDTO.class))).thenAnswer(invocation -> {
+            Thread.sleep(UPLOAD_MILLIS);
+            return ImageUploadResponse.builder().isSuccess(true).originalUrl("original").previewUrl("preview").build();
+        });
+        when(photoMapper.toDto(any(Photo.class))).thenAnswer(invocation -> PhotoInfoDTO.builder().build());
+
+        long started = System.currentTimeMillis();
+        List<PhotoUploadResultDTO> results = photoService.saveMultiple(sessionId, files(16));
+        long elapsed = System.currentTimeMillis() - started;
+
+        assertThat(results).hasSize(16).allMatch(PhotoUploadResultDTO::isSuccess);
+        assertThat(elapsed).isLessThan(UPLOAD_MILLIS * 4);
+        verify(photoBatchRepository, times(1)).insert(eq(sessionId), argThat(photos -> photos.size() == 16), anyCollection());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(sessionService).incrementContentVersion(sessionId);
+    }
+
+    @Test
+    @DisplayName("Should report failed uploads per file and save only the successful ones")
+    void shouldReportFailuresPerFile() {
+        when(imageService.uploadImageWithPreview(eq(sessionId), any(PhotoUploadDTO.class)))
+                .thenReturn(ImageUploadResponse.builder().isSuccess(true).build())
+                .thenReturn(ImageUploadResponse.builder().isSuccess(false).error("storage down").build());
+        when(photoMapper.toDto(any(Photo.class))).thenAnswer(invocation -> PhotoInfoDTO.builder().build());
+
+        List<PhotoUploadResultDTO> results = photoService.saveMultiple(sessionId, files(2));
+
+        assertThat(results).hasSize(2);
+        assertThat(results).filteredOn(PhotoUploadResultDTO::isSuccess).hasSize(1);
+        assertThat(results).filteredOn(result -> !result.isSuccess())
+                .extracting(PhotoUploadResultDTO::getError)
+                .containsExactly("storage down");
+    }
+
+    @Test
+    @DisplayName("Should reuse the stored photo for an identical original and drop the new copy")
+    void shouldDeduplicateIdenticalOriginals() {
+        when(imageService.uploadImageWithPreview(eq(sessionId), any(PhotoUploadDTO.class)))
+                .thenAnswer(invocation -> ImageUploadResponse.builder()
+                        .isSuccess(true)
+                        .contentHash("a1b2")
+                        .build());
+        when(photoMapper.toDto(any(Photo.class))).thenAnswer(invocation -> PhotoInfoDTO.builder().build());
+
+        List<PhotoUploadResultDTO> results = photoService.saveMultiple(sessionId, files(2));
+
+        assertThat(results).allMatch(PhotoUploadResultDTO::isSuccess);
+        assertThat(results).filteredOn(PhotoUploadResultDTO::isDeduplicated).hasSize(1);
+        verify(photoBatchRepository).insert(eq(sessionId), argThat(photos -> photos.size() == 1), anyCollection());
+        verify(imageService, times(1)).deleteObjects(eq(sessionId.toString()), anyCollection());
+        assertThat(meterRegistry.counter("photo.upload.dedup.hits").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should link an original that is already stored without sending it to storage")
+    void shouldNotUploadStoredOriginal() {
+        Photo stored = Photo.builder().id(UUID.randomUUID()).sessions(new ArrayList<>()).build();
+        when(photoRepository.existsByContentHash(anyString())).thenReturn(true);
+        when(photoRepository.findFirstByContentHashOrderByCreatedAt(anyString())).thenReturn(Optional.of(stored));
+        when(photoMapper.toDto(stored)).thenReturn(PhotoInfoDTO.builder().id(stored.getId()).build());
+
+        List<PhotoUploadResultDTO> results = photoService.saveMultiple(sessionId, files(1));
+
+        assertThat(results).singleElement().satisfies(result -> {
+            assertThat(result.isDeduplicated()).isTrue();
+            assertThat(result.getPhoto().getId()).isEqualTo(stored.getId());
+        });
+        verify(imageService, never()).uploadImageWithPreview(any(), any());
+        verify(imageService, never()).uploadOriginal(any(), any());
+        verify(imageService, never()).deleteObjects(anyString(), anyCollection());
+        verify(photoBatchRepository).insert(eq(sessionId), argThat(List::isEmpty), eq(Set.of(stored.getId())));
+        assertThat(meterRegistry.counter("photo.upload.dedup.hits").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should fail an unsent duplicate whose stored photo was deleted before it was linked")
+    void shouldFailDuplicateOfDeletedPhoto() {
+        when(photoRepository.existsByContentHash(anyString())).thenReturn(true);
+        when(photoRepository.findFirstByContentHashOrderByCreatedAt(anyString())).thenReturn(Optional.empty());
+
+        List<PhotoUploadResultDTO> results = photoService.saveMultiple(sessionId, files(1));
+
+        assertThat(results).singleElement().satisfies(result -> {
+            assertThat(result.isSuccess()).isFalse();
+            assertThat(result.getError()).contains("deleted");
+        });
+        verify(imageService, never()).deleteObjects(anyString(), anyCollection());
+    }
+
+    private static List<MultipartFile> files(int count) {
+        return new ArrayList<>(IntStream.range(0, count)
+                .mapToObj(i -> (MultipartFile) new MockMultipartFile("files", "photo" + i + ".jpg",
+                        "image/jpeg", new byte[]{1, 2, 3}))
+                .toList());
+    }
+}
@@ -0,0 +1,159 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.config.CacheConfig;
+import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.model.entity.SessionContentType;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.SessionRepository;
+import io.lunov.backend.service.impl.PortfolioServiceImpl;
+import io.lunov.backend.util.mapper.PhotoMapper;
+import io.lunov.backend.util.mapper.SessionMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs {@link PortfolioServiceImpl} behind the real caching proxy, with mocked
+ * repositories counting how often the database would be read.
+ */
+@SpringJUnitConfig(PortfolioServiceTest.Config.class)
+class PortfolioServiceTest {
+
+    private static final SessionContentType TYPE = SessionContentType.values()[0];
+
+    @Configuration
+    @Import(CacheConfig.class)
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(CacheConfig.PORTFOLIO, CacheConfig.PORTFOLIO_ALBUMS);
+        }
+
+        @Bean
+        SessionRepository sessionRepository() {
+            return mock(SessionRepository.class);
+        }
+
+        @Bean
+        PhotoRepository photoRepository() {
+            return mock(PhotoRepository.class);
+        }
+
+        @Bean
+        SessionMapper sessionMapper() {
+            return mock(SessionMapper.class);
+        }
+
+        @Bean
+        PhotoMapper photoMapper() {
+            return mock(PhotoMapper.class);
+        }
+
+        @Bean
+        PortfolioService portfolioService(SessionRepository sessionRepository, PhotoRepository photoRepository,
+                                          SessionMapper sessionMapper, PhotoMapper photoMapper,
+                                          CacheManager cacheManager) {
+            return new PortfolioServiceImpl(sessionRepository, photoRepository, sessionMapper, photoMapper, cacheManager);
+        }
+    }
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @BeforeEach
+    void setUp() {
+        reset(sessionRepository, photoRepository);
+        when(sessionRepository.findByContentTypeAndAccessType(TYPE, SessionAccessType.PUBLIC)).thenReturn(Optional.empty());
+        when(photoRepository.findByPortfolio(TYPE, SessionAccessType.PUBLIC)).thenReturn(List.of());
+        portfolioService.evict();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer repeated views from the cache")
+    void shouldCacheViews() {
+        portfolioService.findByContentType(TYPE);
+        portfolioService.findByContentType(TYPE);
+        portfolioService.findAlbums();
+        portfolioService.findAlbums();
+
+        verify(photoRepository, times(1)).findByPortfolio(TYPE, SessionAccessType.PUBLIC);
+        verify(sessionRepository, times(1)).findAllByAccessType(SessionAccessType.PUBLIC);
+    }
+
+    @Test
+    @DisplayName("Should keep serving the cache until the evicting transaction commits")
+    void shouldEvictAfterCommit() {
+        portfolioService.findByContentType(TYPE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        portfolioService.evict();
+        portfolioService.findByContentType(TYPE);
+        verify(photoRepository, times(1)).findByPortfolio(TYPE, SessionAccessType.PUBLIC);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        portfolioService.findByContentType(TYPE);
+        verify(photoRepository, times(2)).findByPortfolio(TYPE, SessionAccessType.PUBLIC);
+    }
+
+    @Test
+    @DisplayName("Should not serve what a view that started before an eviction cached after it")
+    void shouldNotServeResultOfViewOverlappingEviction() throws Exception {
+        Photo before = Photo.builder().id(UUID.randomUUID()).build();
+        Photo after = Photo.builder().id(UUID.randomUUID()).build();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        when(photoRepository.findByPortfolio(TYPE, SessionAccessType.PUBLIC))
+                .thenAnswer(invocation -> {
+                    reading.countDown();
+                    evicted.await(5, TimeUnit.SECONDS);
+                    return List.of(before);
+                })
+                .thenReturn(List.of(after));
+
+        CompletableFuture<?> slowView = CompletableFuture.runAsync(() -> portfolioService.findByContentType(TYPE));
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        portfolioService.evict();
+        evicted.countDown();
+        slowView.get(5, TimeUnit.SECONDS);
+
+        portfolioService.findByContentType(TYPE);
+        verify(photoRepository, times(2)).findByPortfolio(TYPE, SessionAccessType.PUBLIC);
+    }
+}
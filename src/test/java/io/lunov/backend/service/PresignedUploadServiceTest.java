@@ -0,0 +1,125 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.photo.PhotoInfoDTO;
+import io.lunov.backend.model.dto.photo.PhotoUploadResultDTO;
+import io.lunov.backend.model.dto.upload.PresignedUploadCompleteDTO;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.service.impl.PresignedUploadServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresignedUploadServiceTest {
+
+    private static final long MAX_FILE_SIZE = DataSize.ofMegabytes(10).toBytes();
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private PhotoService photoService;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    private PresignedUploadServiceImpl service;
+    private UUID sessionId;
+    private String bucketName;
+
+    @BeforeEach
+    void setUp() {
+        service = new PresignedUploadServiceImpl(imageService, sessionService, photoService, photoRepository);
+        ReflectionTestUtils.setField(service, "maxFileSize", DataSize.ofBytes(MAX_FILE_SIZE));
+        sessionId = UUID.randomUUID();
+        bucketName = sessionId.toString();
+    }
+
+    @Test
+    @DisplayName("Should reject names that were not handed out by createUploads")
+    void shouldRejectUnknownNames() {
+        List<PhotoUploadResultDTO> results = service.complete(sessionId, complete("../other/photo", "photo_XYZ"));
+
+        assertThat(results).extracting(PhotoUploadResultDTO::isSuccess, PhotoUploadResultDTO::getError)
+                .containsOnly(tuple(false, "Unknown file name"));
+        verify(imageService, never()).findObjectSize(anyString(), anyString());
+        verifyNoInteractions(photoService);
+    }
+
+    @Test
+    @DisplayName("Should delete oversized objects instead of registering them")
+    void shouldDeleteOversizedObjects() {
+        when(imageService.findObjectSize(bucketName, "photo_0000000a_original.jpg"))
+                .thenReturn(Optional.of(MAX_FILE_SIZE + 1));
+
+        List<PhotoUploadResultDTO> results = service.complete(sessionId, complete("photo_0000000a"));
+
+        assertThat(results).singleElement()
+                .satisfies(result -> assertThat(result.isSuccess()).isFalse())
+                .satisfies(result -> assertThat(result.getError()).startsWith("Photo exceeds"));
+        verify(imageService).deleteObjects(bucketName, List.of("photo_0000000a_original.jpg"));
+        verifyNoInteractions(photoService);
+    }
+
+    @Test
+    @DisplayName("Should not register a name twice")
+    void shouldRejectRegisteredNames() {
+        when(photoRepository.existsByBucketAndFilename(bucketName, "photo_0000000a")).thenReturn(true);
+
+        List<PhotoUploadResultDTO> results = service.complete(sessionId, complete("photo_0000000a"));
+
+        assertThat(results).extracting(PhotoUploadResultDTO::getError).containsExactly("Photo is already registered");
+        verify(imageService, never()).findObjectSize(anyString(), anyString());
+        verifyNoInteractions(photoService);
+    }
+
+    @Test
+    @DisplayName("Should report the name a concurrent completion registered first and keep the others")
+    void shouldHandleConcurrentRegistration() {
+        when(imageService.findObjectSize(eq(bucketName), anyString())).thenReturn(Optional.of(100L));
+        PhotoInfoDTO registered = PhotoInfoDTO.builder().id(UUID.randomUUID()).build();
+        when(photoService.registerStoredOriginals(eq(sessionId), anyMap())).thenAnswer(invocation -> {
+            Map<String, Long> stored = invocation.getArgument(1);
+            if (stored.containsKey("photo_0000000a")) {
+                throw new DuplicateKeyException("uk_photo_bucket_filename");
+            }
+            return List.of(registered);
+        });
+
+        List<PhotoUploadResultDTO> results = service.complete(sessionId, complete("photo_0000000a", "photo_0000000b"));
+
+        assertThat(results).extracting(PhotoUploadResultDTO::getOriginalFilename, PhotoUploadResultDTO::isSuccess,
+                        PhotoUploadResultDTO::getError)
+                .containsExactly(
+                        tuple("photo_0000000a", false, "Photo is already registered"),
+                        tuple("photo_0000000b", true, null));
+        assertThat(results.get(1).getPhoto()).isSameAs(registered);
+        verify(imageService, never()).deleteObjects(anyString(), any());
+    }
+
+    private static PresignedUploadCompleteDTO complete(String... fileNames) {
+        return PresignedUploadCompleteDTO.builder().fileNames(List.of(fileNames)).build();
+    }
+}
@@ -0,0 +1,117 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.dto.error.PhotoNotFoundException;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.PhotoRepository.StoredObject;
+import io.lunov.backend.service.impl.PreviewDeliveryServiceImpl;
+import io.lunov.backend.service.impl.PreviewRenderer;
+import io.lunov.backend.util.storage.PreviewDiskCache;
+import io.lunov.backend.util.storage.PreviewDiskCache.CachedFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreviewDeliveryServiceTest {
+
+    private static final int WIDTH = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private PreviewRenderer previewRenderer;
+
+    @Mock
+    private PreviewDiskCache previewDiskCache;
+
+    private PreviewDeliveryServiceImpl service;
+    private UUID photoId;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        service = new PreviewDeliveryServiceImpl(photoRepository, imageService, previewRenderer, previewDiskCache,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxAge", Duration.ofDays(365));
+        photoId = UUID.randomUUID();
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    @DisplayName("Should let shared caches keep previews of public sessions")
+    void shouldServePublicPreviewPublicly() throws IOException {
+        when(photoRepository.findAccessType(photoId, null)).thenReturn(Optional.of("PUBLIC"));
+        stubPreview();
+
+        service.servePreview(photoId, null, new MockHttpServletRequest("GET", "/preview"), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("public").contains("immutable");
+        assertThat(response.getContentAsByteArray()).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("Should serve a private preview to the holder of the access code for the client's cache only")
+    void shouldServePrivatePreviewPrivately() throws IOException {
+        when(photoRepository.findAccessType(photoId, "ABCD1234")).thenReturn(Optional.of("PRIVATE"));
+        stubPreview();
+
+        service.servePreview(photoId, "ABCD1234", new MockHttpServletRequest("GET", "/preview"), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("private").doesNotContain("public");
+    }
+
+    @Test
+    @DisplayName("Should answer a preview the request may not see like a missing one, without reading storage")
+    void shouldHidePrivatePreview() throws IOException {
+        when(photoRepository.findAccessType(photoId, "WRONG")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.servePreview(photoId, "WRONG",
+                new MockHttpServletRequest("GET", "/preview"), response))
+                .isInstanceOf(PhotoNotFoundException.class);
+
+        verify(photoRepository, never()).findRendition(any(), anyInt());
+        verifyNoInteractions(previewDiskCache, imageService);
+    }
+
+    private void stubPreview() throws IOException {
+        StoredObject preview = mock(StoredObject.class);
+        when(preview.getBucket()).thenReturn("bucket");
+        when(preview.getObjectName()).thenReturn("photo_1024.jpg");
+        when(previewRenderer.getDefaultWidth()).thenReturn(WIDTH);
+        when(photoRepository.findRendition(photoId, WIDTH)).thenReturn(Optional.of(preview));
+        Path file = Files.write(directory.resolve("preview.bin"), new byte[10]);
+        when(previewDiskCache.get(eq("bucket"), anyString(), any())).thenReturn(new CachedFile(file, 10));
+    }
+}
@@ -0,0 +1,145 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.model.exception.UnreadableImageException;
+import io.lunov.backend.service.impl.PreviewRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SortedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PreviewRendererTest {
+
+    private static final int LARGEST_RENDITION = 2560;
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PreviewRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        renderer = new PreviewRenderer(meterRegistry);
+        ReflectionTestUtils.setField(renderer, "renditionWidths", List.of(320, 800, 1920, LARGEST_RENDITION));
+        ReflectionTestUtils.setField(renderer, "defaultWidth", 1920);
+        ReflectionTestUtils.setField(renderer, "quality", 0.85);
+    }
+
+    @ParameterizedTest(name = "{0}x{1} camera JPEG")
+    @CsvSource({
+            "6000, 4000",   // 24 MP
+            "8192, 5464",   // 45 MP
+            "8640, 5760",   // 50 MP
+            "9504, 6336"    // 61 MP
+    })
+    @DisplayName("Should keep decoded pixels close to the largest rendition for camera resolutions")
+    void shouldBoundDecodedPixelsForCameraResolutions(int width, int height) throws IOException {
+        long targetPixels = (long) LARGEST_RENDITION * LARGEST_RENDITION * height / width;
+
+        BufferedImage decoded = renderer.decode(new ByteArrayInputStream(jpeg(width, height)));
+
+        assertThat(Math.max(decoded.getWidth(), decoded.getHeight())).isGreaterThanOrEqualTo(LARGEST_RENDITION);
+        assertThat((long) decoded.getWidth() * decoded.getHeight()).isLessThanOrEqualTo(2 * targetPixels);
+        assertThat(PreviewRenderer.sizeInBytes(decoded))
+                .isLessThan((long) width * height * BYTES_PER_PIXEL);
+    }
+
+    @Test
+    @DisplayName("Should subsample a source whose long edge is less than twice the largest rendition")
+    void shouldSubsampleSourceBelowTwiceLargestRendition() throws IOException {
+        long targetPixels = (long) LARGEST_RENDITION * LARGEST_RENDITION * 3264 / 4928;
+
+        BufferedImage decoded = renderer.decode(new ByteArrayInputStream(jpeg(4928, 3264)));
+
+        assertThat(decoded.getWidth()).isEqualTo(2464);
+        assertThat(decoded.getHeight()).isEqualTo(1632);
+        assertThat(PreviewRenderer.sizeInBytes(decoded))
+                .isLessThanOrEqualTo(PreviewRenderer.MAX_DECODED_PIXEL_RATIO * targetPixels * BYTES_PER_PIXEL);
+    }
+
+    @Test
+    @DisplayName("Should decode a 24 MP JPEG with subsampling")
+    void shouldDecodeWithSubsampling() throws IOException {
+        byte[] jpeg = jpeg(6000, 4000);
+
+        BufferedImage decoded = renderer.decode(new ByteArrayInputStream(jpeg));
+
+        assertThat(decoded.getWidth()).isEqualTo(3000);
+        assertThat(decoded.getHeight()).isEqualTo(2000);
+        assertThat(PreviewRenderer.sizeInBytes(decoded)).isEqualTo(3000L * 2000 * BYTES_PER_PIXEL);
+        assertThat(meterRegistry.summary("preview.decode.bytes").max()).isEqualTo(3000.0 * 2000 * BYTES_PER_PIXEL);
+    }
+
+    @Test
+    @DisplayName("Should not subsample images smaller than the largest rendition")
+    void shouldNotSubsampleSmallImages() throws IOException {
+        BufferedImage decoded = renderer.decode(new ByteArrayInputStream(jpeg(2000, 1500)));
+
+        assertThat(decoded.getWidth()).isEqualTo(2000);
+        assertThat(decoded.getHeight()).isEqualTo(1500);
+    }
+
+    @Test
+    @DisplayName("Should encode a small source once for every width it is smaller than")
+    void shouldShareRenditionsLargerThanSource() throws IOException {
+        SortedMap<Integer, byte[]> renditions = renderer.render(new ByteArrayInputStream(jpeg(600, 400)));
+
+        assertThat(renditions).containsOnlyKeys(320, 800, 1920, LARGEST_RENDITION);
+        assertThat(renditions.get(800)).isSameAs(renditions.get(1920)).isSameAs(renditions.get(LARGEST_RENDITION));
+        assertThat(renditions.get(320)).isNotSameAs(renditions.get(800));
+    }
+
+    @Test
+    @DisplayName("Should report data no decoder understands as an unreadable image")
+    void shouldRejectUnreadableImage() {
+        byte[] notAnImage = "not an image".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> renderer.decode(new ByteArrayInputStream(notAnImage)))
+                .isInstanceOf(UnreadableImageException.class);
+    }
+
+    @Test
+    @DisplayName("Should pass on a source that failed to deliver its bytes instead of calling the image unreadable")
+    void shouldPassOnSourceFailure() {
+        IOException reset = new IOException("Connection reset");
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw reset;
+            }
+        };
+
+        assertThatThrownBy(() -> renderer.decode(failing))
+                .isSameAs(reset);
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", output);
+        return output.toByteArray();
+    }
+}
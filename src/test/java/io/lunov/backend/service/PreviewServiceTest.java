@@ -0,0 +1,229 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.config.RabbitConfig;
+import io.lunov.backend.model.dto.image.RenditionDTO;
+import io.lunov.backend.model.dto.photo.PreviewRequestMessage;
+import io.lunov.backend.model.entity.Photo;
+import io.lunov.backend.model.entity.PhotoRendition;
+import io.lunov.backend.model.entity.PhotoStatus;
+import io.lunov.backend.model.exception.UnreadableImageException;
+import io.lunov.backend.repository.PhotoRepository;
+import io.lunov.backend.repository.SessionRepository;
+import io.lunov.backend.service.impl.PreviewRenderer;
+import io.lunov.backend.service.impl.PreviewServiceImpl;
+import io.lunov.backend.util.mapper.PhotoMapperImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreviewServiceTest {
+
+    private static final String BUCKET = "bucket";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PortfolioService portfolioService;
+
+    private PreviewServiceImpl previewService;
+    private Photo photo;
+
+    @BeforeEach
+    void setUp() {
+        PreviewRenderer previewRenderer = new PreviewRenderer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(previewRenderer, "defaultWidth", 1920);
+        previewService = new PreviewServiceImpl(rabbitTemplate, imageService, previewRenderer, photoRepository,
+                sessionRepository, new PhotoMapperImpl(), transactionTemplate, portfolioService);
+        ReflectionTestUtils.setField(previewService, "staleAfter", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(previewService, "giveUpAfter", Duration.ofHours(24));
+        ReflectionTestUtils.setField(previewService, "resendBatchSize", 100);
+
+        photo = Photo.builder()
+                .id(UUID.randomUUID())
+                .bucket(BUCKET)
+                .filename("photo")
+                .status(PhotoStatus.PROCESSING)
+                .createdAt(Instant.now().minus(Duration.ofMinutes(30)))
+                .build();
+
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("Should store the renditions and mark the photo READY")
+    void shouldCompletePreview() throws Exception {
+        when(photoRepository.existsByIdAndStatus(photo.getId(), PhotoStatus.PROCESSING)).thenReturn(true);
+        when(photoRepository.findById(photo.getId())).thenReturn(Optional.of(photo));
+        when(imageService.generateRenditions(BUCKET, "photo")).thenReturn(List.of(
+                RenditionDTO.builder().width(320).fileName("photo_320.jpg").url("url-320").build(),
+                RenditionDTO.builder().width(1920).fileName("photo_1920.jpg").url("url-1920").build()));
+
+        previewService.generatePreview(message());
+
+        assertThat(photo.getStatus()).isEqualTo(PhotoStatus.READY);
+        assertThat(photo.getPreviewUrl()).isEqualTo("url-1920");
+        assertThat(photo.getRenditions()).extracting(PhotoRendition::getObjectName)
+                .containsExactly("photo_320.jpg", "photo_1920.jpg");
+        verify(sessionRepository).incrementContentVersionByPhotoIds(List.of(photo.getId()));
+    }
+
+    @Test
+    @DisplayName("Should mark an unreadable photo FAILED and reject the message to the dead-letter queue")
+    void shouldFailPreview() throws Exception {
+        when(photoRepository.existsByIdAndStatus(photo.getId(), PhotoStatus.PROCESSING)).thenReturn(true);
+        when(photoRepository.findById(photo.getId())).thenReturn(Optional.of(photo));
+        when(imageService.generateRenditions(BUCKET, "photo")).thenThrow(new UnreadableImageException("Unsupported image format"));
+
+        assertThatThrownBy(() -> previewService.generatePreview(message()))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class);
+
+        assertThat(photo.getStatus()).isEqualTo(PhotoStatus.FAILED);
+        verify(sessionRepository).incrementContentVersionByPhotoIds(List.of(photo.getId()));
+        // rejected messages are routed by the queue's dead-letter exchange
+        Queue queue = new RabbitConfig().previewQueue();
+        assertThat(queue.getArguments())
+                .containsEntry("x-dead-letter-exchange", RabbitConfig.PREVIEW_DEAD_LETTER_EXCHANGE)
+                .containsEntry("x-dead-letter-routing-key", RabbitConfig.PREVIEW_ROUTING_KEY);
+    }
+
+    @Test
+    @DisplayName("Should keep the photo PROCESSING and leave a storage failure to the listener's retries")
+    void shouldRetryTransientFailure() throws Exception {
+        when(photoRepository.existsByIdAndStatus(photo.getId(), PhotoStatus.PROCESSING)).thenReturn(true);
+        when(imageService.generateRenditions(BUCKET, "photo")).thenThrow(new IOException("Connection reset"));
+
+        assertThatThrownBy(() -> previewService.generatePreview(message()))
+                .isNotInstanceOf(AmqpRejectAndDontRequeueException.class)
+                .hasRootCauseMessage("Connection reset");
+
+        assertThat(photo.getStatus()).isEqualTo(PhotoStatus.PROCESSING);
+        verify(photoRepository, never()).findById(any());
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    @DisplayName("Should delete the renditions of a photo deleted while they were generated")
+    void shouldDeleteRenditionsOfPhotoDeletedMeanwhile() throws Exception {
+        when(photoRepository.existsByIdAndStatus(photo.getId(), PhotoStatus.PROCESSING)).thenReturn(true);
+        when(photoRepository.findById(photo.getId())).thenReturn(Optional.empty());
+        when(imageService.generateRenditions(BUCKET, "photo")).thenReturn(List.of(
+                RenditionDTO.builder().width(320).fileName("photo_320.jpg").url("url-320").build(),
+                RenditionDTO.builder().width(1920).fileName("photo_1920.jpg").url("url-1920").build()));
+
+        previewService.generatePreview(message());
+
+        verify(imageService).deleteObjects(BUCKET, List.of("photo_320.jpg", "photo_1920.jpg"));
+        verifyNoInteractions(sessionRepository, portfolioService);
+    }
+
+    @Test
+    @DisplayName("Should skip photos deleted before their preview request arrived")
+    void shouldSkipDeletedPhoto() throws Exception {
+        when(photoRepository.existsByIdAndStatus(photo.getId(), PhotoStatus.PROCESSING)).thenReturn(false);
+
+        previewService.generatePreview(message());
+
+        verify(imageService, never()).generateRenditions(anyString(), anyString());
+        verify(photoRepository, never()).findById(any());
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    @DisplayName("Should keep the photo PROCESSING when RabbitMQ is unavailable")
+    void shouldSurviveUnavailableBroker() {
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        previewService.requestPreview(photo.getId(), BUCKET, "photo");
+
+        assertThat(photo.getStatus()).isEqualTo(PhotoStatus.PROCESSING);
+    }
+
+    @Test
+    @DisplayName("Should request stale previews again and remember when")
+    void shouldResendStaleRequests() {
+        when(photoRepository.lockRequestedBefore(eq(PhotoStatus.PROCESSING), any(Instant.class), eq(Limit.of(100))))
+                .thenReturn(List.of(photo));
+        List<Object> sent = new ArrayList<>();
+        doAnswer(invocation -> sent.add(invocation.getArgument(2)))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        previewService.resendStaleRequests();
+
+        assertThat(sent).containsExactly(message());
+        assertThat(photo.getPreviewRequestedAt()).isNotNull();
+        assertThat(photo.getStatus()).isEqualTo(PhotoStatus.PROCESSING);
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    @DisplayName("Should mark photos FAILED once re-sending is given up")
+    void shouldGiveUpOnOldPhotos() {
+        photo.setCreatedAt(Instant.now().minus(Duration.ofDays(2)));
+        when(photoRepository.lockRequestedBefore(eq(PhotoStatus.PROCESSING), any(Instant.class), eq(Limit.of(100))))
+                .thenReturn(List.of(photo));
+
+        previewService.resendStaleRequests();
+
+        assertThat(photo.getStatus()).isEqualTo(PhotoStatus.FAILED);
+        verify(sessionRepository).incrementContentVersionByPhotoIds(List.of(photo.getId()));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    private PreviewRequestMessage message() {
+        return PreviewRequestMessage.builder()
+                .photoId(photo.getId())
+                .bucketName(BUCKET)
+                .fileName("photo")
+                .build();
+    }
+}
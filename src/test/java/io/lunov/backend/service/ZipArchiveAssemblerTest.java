@@ -0,0 +1,249 @@
+package io.lunov.backend.service;
+
+import io.lunov.backend.service.impl.ZipArchiveAssembler;
+import io.lunov.backend.service.impl.ZipArchiveAssembler.ZipSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * The assembler against a mocked MinIO whose objects arrive in whatever order and at
+ * whatever pace a test needs.
+ */
+@ExtendWith(MockitoExtension.class)
+class ZipArchiveAssemblerTest {
+
+    private static final String BUCKET = "bucket";
+
+    @Mock
+    private MinioClient minioClient;
+
+    private ExecutorService storageExecutor;
+    private ZipArchiveAssembler assembler;
+    private Map<String, byte[]> objects;
+    private List<String> fetched;
+
+    @BeforeEach
+    void setUp() {
+        storageExecutor = Executors.newFixedThreadPool(8);
+        assembler = new ZipArchiveAssembler(minioClient, storageExecutor, new SimpleMeterRegistry());
+        configure(8, DataSize.ofMegabytes(1));
+        objects = new LinkedHashMap<>();
+        fetched = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        storageExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should write entries in the given order when later objects arrive first")
+    void shouldKeepInputOrder() throws Exception {
+        List<ZipSource> sources = sources(6, 100);
+        // the first object is the slowest, the last one the fastest
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            int index = sources.stream().map(ZipSource::objectName).toList().indexOf(args.object());
+            Thread.sleep((sources.size() - index) * 20L);
+            return response(args);
+        });
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assembler.write("archive", sources, output);
+
+        Map<String, byte[]> entries = unzip(output.toByteArray());
+        assertThat(entries.keySet()).containsExactlyElementsOf(sources.stream().map(ZipSource::entryName).toList());
+        sources.forEach(source ->
+                assertThat(entries.get(source.entryName())).isEqualTo(objects.get(source.objectName())));
+    }
+
+    @Test
+    @DisplayName("Should fetch ahead no more than the read-ahead size while the client is slow")
+    void shouldBoundReadAheadBySize() throws Exception {
+        configure(8, DataSize.ofBytes(350));
+        List<ZipSource> sources = sources(10, 100);
+
+        assertThat(fetchedWhileClientStalls(sources)).containsExactlyInAnyOrder("photo_0", "photo_1", "photo_2");
+    }
+
+    @Test
+    @DisplayName("Should fetch ahead no more objects than the fetch concurrency while the client is slow")
+    void shouldBoundReadAheadByConcurrency() throws Exception {
+        configure(2, DataSize.ofMegabytes(1));
+        List<ZipSource> sources = sources(10, 100);
+
+        assertThat(fetchedWhileClientStalls(sources)).containsExactlyInAnyOrder("photo_0", "photo_1");
+    }
+
+    @Test
+    @DisplayName("Should stream an object larger than the read-ahead size on the writing thread")
+    void shouldStreamOversizedObjectWithoutReadAhead() throws Exception {
+        configure(8, DataSize.ofBytes(200));
+        List<ZipSource> sources = List.of(source("small_0", 50), source("large", 1000), source("small_1", 50));
+        Map<String, Thread> fetchingThreads = new ConcurrentHashMap<>();
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            fetchingThreads.put(args.object(), Thread.currentThread());
+            return response(args);
+        });
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assembler.write("archive", sources, output);
+
+        Map<String, byte[]> entries = unzip(output.toByteArray());
+        assertThat(entries.keySet()).containsExactly("small_0.jpg", "large.jpg", "small_1.jpg");
+        assertThat(entries.get("large.jpg")).isEqualTo(objects.get("large"));
+        assertThat(fetchingThreads.get("large")).isSameAs(Thread.currentThread());
+        assertThat(fetchingThreads.get("small_0")).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    @DisplayName("Should abort the archive when a fetch fails, without waiting for the fetches still running")
+    void shouldAbortOnFetchFailure() throws Exception {
+        List<ZipSource> sources = sources(4, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            if (args.object().equals("photo_1")) {
+                throw new IOException("Connection reset");
+            }
+            if (!args.object().equals("photo_0")) {
+                release.await();
+            }
+            return response(args);
+        });
+
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                    assertThatThrownBy(() -> assembler.write("archive", sources, new ByteArrayOutputStream()))
+                            .isInstanceOf(IOException.class)
+                            .hasRootCauseMessage("Connection reset"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // stalls the client on the first entry and returns what was fetched meanwhile, then lets the archive finish
+    private List<String> fetchedWhileClientStalls(List<ZipSource> sources) throws Exception {
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            fetched.add(args.object());
+            return response(args);
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputStream slowClient = new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                stalled.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+        };
+
+        CompletableFuture<Void> archive = CompletableFuture.runAsync(() -> {
+            try {
+                assembler.write("archive", sources, slowClient);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        List<String> whileStalled;
+        try {
+            assertThat(stalled.await(5, TimeUnit.SECONDS)).isTrue();
+            // give fetches that should not have been started the time to show up
+            Thread.sleep(200);
+            whileStalled = List.copyOf(fetched);
+        } finally {
+            release.countDown();
+        }
+        archive.get(5, TimeUnit.SECONDS);
+
+        assertThat(unzip(output.toByteArray())).hasSize(sources.size());
+        return whileStalled;
+    }
+
+    private void configure(int fetchConcurrency, DataSize readAheadSize) {
+        ReflectionTestUtils.setField(assembler, "fetchConcurrency", fetchConcurrency);
+        ReflectionTestUtils.setField(assembler, "readAheadSize", readAheadSize);
+    }
+
+    private List<ZipSource> sources(int count, int size) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> source("photo_" + index, size))
+                .toList();
+    }
+
+    private ZipSource source(String objectName, int size) {
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) objectName.hashCode());
+        objects.put(objectName, content);
+        return new ZipSource(objectName + ".jpg", BUCKET, objectName, size);
+    }
+
+    private GetObjectResponse response(GetObjectArgs args) {
+        return new GetObjectResponse(Headers.of(), args.bucket(), null, args.object(),
+                new ByteArrayInputStream(objects.get(args.object())));
+    }
+
+    private static Map<String, byte[]> unzip(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,62 @@
+package io.lunov.backend.util.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BroadcastingStorageAccessTest {
+
+    private static final String REGION = "io.lunov.backend.model.entity.Session";
+
+    @Mock
+    private DomainDataStorageAccess delegate;
+
+    @Mock
+    private CacheInvalidationBroadcaster broadcaster;
+
+    private BroadcastingStorageAccess access;
+
+    @BeforeEach
+    void setUp() {
+        access = new BroadcastingStorageAccess(REGION, delegate, broadcaster);
+    }
+
+    @Test
+    @DisplayName("Should broadcast evictions of single entries and whole regions")
+    void shouldBroadcastEvictions() {
+        UUID id = UUID.randomUUID();
+
+        access.removeFromCache(id, null);
+        access.evictData();
+
+        verify(delegate).removeFromCache(id, null);
+        verify(delegate).evictData();
+        verify(broadcaster).publish(REGION, id);
+        verify(broadcaster).publish(REGION, null);
+    }
+
+    @Test
+    @DisplayName("Should keep loads local and not send received evictions on")
+    void shouldNotBroadcastLoadsOrRemoteEvictions() {
+        UUID id = UUID.randomUUID();
+
+        access.putFromLoad(id, "state", null);
+        access.evictLocally(id);
+        access.evictLocally(null);
+
+        verify(delegate).putFromLoad(id, "state", null);
+        verify(delegate).evictData(id);
+        verify(delegate).evictData();
+        verify(broadcaster, never()).publish(any(), any());
+    }
+}
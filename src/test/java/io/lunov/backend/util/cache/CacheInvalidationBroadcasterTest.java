@@ -0,0 +1,116 @@
+package io.lunov.backend.util.cache;
+
+import io.lunov.backend.config.RabbitConfig;
+import io.lunov.backend.model.dto.cache.CacheInvalidationMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBroadcasterTest {
+
+    private static final String SESSIONS = "io.lunov.backend.model.entity.Session";
+    private static final String PHOTOS = "io.lunov.backend.model.entity.Photo";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private CacheInvalidationBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new CacheInvalidationBroadcaster(rabbitTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(broadcaster);
+    }
+
+    @Test
+    @DisplayName("Should send the evictions of a transaction as one message once it has committed")
+    void shouldBatchEvictionsUntilCommit() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+
+        broadcaster.publish(SESSIONS, first);
+        broadcaster.publish(SESSIONS, second);
+        broadcaster.publish(SESSIONS, first);
+        broadcaster.publish(PHOTOS, UUID.randomUUID());
+        broadcaster.publish(PHOTOS, null);
+        verifyNoInteractions(rabbitTemplate);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        ArgumentCaptor<CacheInvalidationMessage> sent = ArgumentCaptor.forClass(CacheInvalidationMessage.class);
+        verify(rabbitTemplate).convertAndSend(eq(RabbitConfig.CACHE_INVALIDATION_EXCHANGE), eq(""), sent.capture());
+        assertThat(broadcaster.isOwn(sent.getValue())).isTrue();
+        assertThat(sent.getValue().getKeys()).containsOnlyKeys(SESSIONS);
+        assertThat(sent.getValue().getKeys().get(SESSIONS)).containsExactly(first, second);
+        assertThat(sent.getValue().getRegions()).containsExactly(PHOTOS);
+    }
+
+    @Test
+    @DisplayName("Should drop the evictions of a rolled back transaction")
+    void shouldNotSendEvictionsOfRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        broadcaster.publish(SESSIONS, UUID.randomUUID());
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verifyNoInteractions(rabbitTemplate);
+        assertThat(TransactionSynchronizationManager.hasResource(broadcaster)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should send evictions made outside a transaction right away")
+    void shouldSendEvictionsOutsideTransaction() {
+        UUID id = UUID.randomUUID();
+
+        broadcaster.publish(SESSIONS, id);
+
+        verify(rabbitTemplate).convertAndSend(anyString(), anyString(),
+                argThat((CacheInvalidationMessage message) -> message.getKeys().get(SESSIONS).equals(List.of(id))));
+    }
+
+    @Test
+    @DisplayName("Should not fail the evicting caller when the broker is down")
+    void shouldSurviveBrokerFailure() {
+        doThrow(new AmqpConnectException(new ConnectException("down")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        broadcaster.publish(SESSIONS, null);
+
+        verify(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    // what the transaction manager does once the transaction is over
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
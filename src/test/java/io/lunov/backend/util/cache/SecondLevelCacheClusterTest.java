@@ -0,0 +1,213 @@
+package io.lunov.backend.util.cache;
+
+import io.lunov.backend.config.RabbitConfig;
+import io.lunov.backend.model.dto.cache.CacheInvalidationMessage;
+import io.lunov.backend.model.entity.Session;
+import io.lunov.backend.model.entity.SessionAccessType;
+import io.lunov.backend.repository.SessionVersionRepositoryImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two Hibernate instances on one database, each with a second-level cache of its own.
+ * A stand-in for the fanout exchange hands every message an instance sends to the
+ * listeners of both, as the broker does; everything else is the production cache stack.
+ */
+@Testcontainers
+class SecondLevelCacheClusterTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private final List<CacheInvalidationListener> listeners = new ArrayList<>();
+    private Node first;
+    private Node second;
+
+    @BeforeEach
+    void setUp() {
+        first = node("first", "create");
+        second = node("second", "none");
+    }
+
+    @AfterEach
+    void tearDown() {
+        second.entityManagerFactory().close();
+        first.entityManagerFactory().close();
+    }
+
+    @Test
+    @DisplayName("Should serve repeated loads from the cache and evict them on the other instance after commit")
+    void shouldEvictUpdatedEntityOnOtherInstanceAfterCommit() {
+        UUID id = first.create("Wedding");
+        assertThat(second.load(id).getName()).isEqualTo("Wedding");
+        long hits = second.statistics().getSecondLevelCacheHitCount();
+        second.load(id);
+        assertThat(second.statistics().getSecondLevelCacheHitCount()).isEqualTo(hits + 1);
+        first.sent().clear();
+
+        first.inTransaction(entityManager -> {
+            entityManager.find(Session.class, id).setName("Wedding, edited");
+            entityManager.flush();
+            // the old row is still what other transactions read, so the other cache keeps it
+            assertThat(second.isCached(id)).isTrue();
+            return null;
+        });
+
+        assertThat(first.sent()).hasSize(1);
+        assertThat(second.isCached(id)).isFalse();
+        assertThat(second.load(id).getName()).isEqualTo("Wedding, edited");
+    }
+
+    @Test
+    @DisplayName("Should evict a deleted entity on the other instance only once the delete committed")
+    void shouldEvictDeletedEntityOnOtherInstanceAfterCommit() {
+        UUID id = first.create("Family portrait");
+        second.load(id);
+
+        first.inTransaction(entityManager -> {
+            entityManager.remove(entityManager.find(Session.class, id));
+            entityManager.flush();
+            assertThat(second.isCached(id)).isTrue();
+            return null;
+        });
+
+        assertThat(second.isCached(id)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep the other instance's cache when the change rolled back")
+    void shouldNotEvictOnOtherInstanceAfterRollback() {
+        UUID id = first.create("Wedding");
+        second.load(id);
+        first.sent().clear();
+
+        first.transactionTemplate().executeWithoutResult(status -> {
+            first.entityManager().find(Session.class, id).setName("Never stored");
+            first.entityManager().flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(first.sent()).isEmpty();
+        assertThat(second.isCached(id)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should evict only the session whose content version went up")
+    void shouldEvictOnlyBumpedSession() {
+        UUID bumped = first.create("Bumped");
+        UUID untouched = first.create("Untouched");
+        second.load(bumped);
+        second.load(untouched);
+
+        first.inTransaction(entityManager ->
+                new SessionVersionRepositoryImpl(entityManager).incrementContentVersion(bumped));
+
+        assertThat(second.isCached(bumped)).isFalse();
+        assertThat(second.isCached(untouched)).isTrue();
+        assertThat(second.load(bumped).getContentVersion()).isEqualTo(1);
+    }
+
+    private Node node(String name, String ddl) {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster(rabbitTemplate);
+        BroadcastingRegionFactory regionFactory = new BroadcastingRegionFactory(broadcaster, 1000, Duration.ofMinutes(10));
+        listeners.add(new CacheInvalidationListener(broadcaster, regionFactory));
+        List<CacheInvalidationMessage> sent = new ArrayList<>();
+        doAnswer(invocation -> {
+            CacheInvalidationMessage message = invocation.getArgument(2);
+            sent.add(message);
+            listeners.forEach(listener -> listener.onInvalidation(message));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(RabbitConfig.CACHE_INVALIDATION_EXCHANGE), eq(""), any(Object.class));
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setPersistenceUnitName(name);
+        factory.setDataSource(new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword()));
+        factory.setPackagesToScan("io.lunov.backend.model.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                AvailableSettings.HBM2DDL_AUTO, ddl,
+                AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName(),
+                AvailableSettings.USE_SECOND_LEVEL_CACHE, true,
+                AvailableSettings.CACHE_REGION_FACTORY, regionFactory,
+                // both instances share the JVM's JCache manager; regions are broadcast by unprefixed name
+                AvailableSettings.CACHE_REGION_PREFIX, name,
+                AvailableSettings.GENERATE_STATISTICS, true));
+        factory.afterPropertiesSet();
+
+        EntityManagerFactory entityManagerFactory = factory.getObject();
+        return new Node(entityManagerFactory,
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory),
+                new TransactionTemplate(new JpaTransactionManager(entityManagerFactory)),
+                sent);
+    }
+
+    private record Node(EntityManagerFactory entityManagerFactory, EntityManager entityManager,
+                        TransactionTemplate transactionTemplate, List<CacheInvalidationMessage> sent) {
+
+        <T> T inTransaction(Function<EntityManager, T> work) {
+            return transactionTemplate.execute(status -> work.apply(entityManager));
+        }
+
+        UUID create(String name) {
+            return inTransaction(entityManager -> {
+                Session session = Session.builder()
+                        .name(name)
+                        .accessType(SessionAccessType.PRIVATE)
+                        .accessCode(UUID.randomUUID().toString().substring(0, 8))
+                        .build();
+                entityManager.persist(session);
+                return session.getId();
+            });
+        }
+
+        Session load(UUID id) {
+            return inTransaction(entityManager -> entityManager.find(Session.class, id));
+        }
+
+        boolean isCached(UUID id) {
+            return entityManagerFactory.getCache().contains(Session.class, id);
+        }
+
+        Statistics statistics() {
+            return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        }
+    }
+}
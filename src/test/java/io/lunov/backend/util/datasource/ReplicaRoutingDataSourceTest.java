@@ -0,0 +1,124 @@
+package io.lunov.backend.util.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes through two Postgres containers told apart by database name; no replication
+ * is needed to see which one served a statement.
+ */
+@Testcontainers
+class ReplicaRoutingDataSourceTest {
+
+    private static final String CURRENT_DATABASE = "SELECT current_database()";
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primarydb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("replicadb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    @DisplayName("Read-only transactions go to the replica, everything else to the primary")
+    void shouldRouteByTransactionReadOnlyFlag() {
+        DataSource dataSource = routing(Map.of("replica-1", pool(replica.getJdbcUrl())));
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        assertThat(inTransaction(dataSource, true, jdbc)).isEqualTo("replicadb");
+        assertThat(inTransaction(dataSource, false, jdbc)).isEqualTo("primarydb");
+        assertThat(jdbc.queryForObject(CURRENT_DATABASE, String.class)).isEqualTo("primarydb");
+    }
+
+    @Test
+    @DisplayName("Unreachable replicas are skipped and reads fall back to the primary when none is left")
+    void shouldSkipUnhealthyReplicas() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", pool(replica.getJdbcUrl()));
+        replicas.put("replica-2", pool("jdbc:postgresql://localhost:1/missing"));
+        DataSource dataSource = routing(replicas);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(inTransaction(dataSource, true, jdbc)).isEqualTo("replicadb");
+        }
+
+        DataSource deadOnly = routing(Map.of("replica-2", pool("jdbc:postgresql://localhost:1/missing")));
+        assertThat(inTransaction(deadOnly, true, new JdbcTemplate(deadOnly))).isEqualTo("primarydb");
+    }
+
+    @Test
+    @DisplayName("Transactions that read from a replica are marked as such until they complete")
+    void shouldMarkReplicaReads() {
+        DataSource dataSource = routing(Map.of("replica-1", pool(replica.getJdbcUrl())));
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transaction.setReadOnly(true);
+        assertThat(transaction.execute(status -> {
+            jdbc.queryForObject(CURRENT_DATABASE, String.class);
+            return ReplicaRoutingDataSource.isReadingFromReplica();
+        })).isTrue();
+        assertThat(ReplicaRoutingDataSource.isReadingFromReplica()).isFalse();
+
+        transaction.setReadOnly(false);
+        assertThat(transaction.execute(status -> {
+            jdbc.queryForObject(CURRENT_DATABASE, String.class);
+            return ReplicaRoutingDataSource.isReadingFromReplica();
+        })).isFalse();
+    }
+
+    private DataSource routing(Map<String, DataSource> replicas) {
+        ReplicaRoutingDataSource routing =
+                new ReplicaRoutingDataSource(pool(primary.getJdbcUrl()), replicas, Duration.ofSeconds(1));
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static String inTransaction(DataSource dataSource, boolean readOnly, JdbcTemplate jdbc) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> jdbc.queryForObject(CURRENT_DATABASE, String.class));
+    }
+
+    private HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername("test");
+        pool.setPassword("test");
+        pool.setConnectionTimeout(500);
+        pool.setInitializationFailTimeout(-1);
+        pools.add(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,35 @@
+package io.lunov.backend.util.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETagsTest {
+
+    private final UUID sessionId = UUID.fromString("6f1c2b1e-4a53-4c3e-9f3c-2d4f1b7a9e10");
+
+    @Test
+    @DisplayName("Should build quoted tags that differ by kind and version")
+    void shouldBuildStrongTags() {
+        String session = ETags.of(ETags.SESSION, sessionId, 3);
+
+        assertThat(session).isEqualTo("\"session-" + sessionId + "-3\"");
+        assertThat(ETags.of(ETags.SESSION_PHOTOS, sessionId, 3)).isNotEqualTo(session);
+        assertThat(ETags.of(ETags.SESSION, sessionId, 4)).isNotEqualTo(session);
+    }
+
+    @Test
+    @DisplayName("Should match If-None-Match lists, weak tags and the wildcard")
+    void shouldMatchIfNoneMatch() {
+        String etag = ETags.of(ETags.SESSION, sessionId, 3);
+
+        assertThat(ETags.matches("\"other\", " + etag, etag)).isTrue();
+        assertThat(ETags.matches("W/" + etag, etag)).isTrue();
+        assertThat(ETags.matches("*", etag)).isTrue();
+        assertThat(ETags.matches(ETags.of(ETags.SESSION, sessionId, 2), etag)).isFalse();
+        assertThat(ETags.matches(null, etag)).isFalse();
+    }
+}
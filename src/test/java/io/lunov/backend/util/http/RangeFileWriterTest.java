@@ -0,0 +1,127 @@
+package io.lunov.backend.util.http;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeFileWriterTest {
+
+    private static final int SIZE = 100;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private byte[] content;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        file = Files.write(directory.resolve("preview.bin"), content);
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    @DisplayName("Should send the whole file without a Range header")
+    void shouldSendWholeFile() throws IOException {
+        long sent = RangeFileWriter.write(file, SIZE, new MockHttpServletRequest("GET", "/preview"), response);
+
+        assertThat(sent).isEqualTo(SIZE);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getContentLengthLong()).isEqualTo(SIZE);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    @DisplayName("Should answer a single range with 206 and only its bytes")
+    void shouldSendRange() throws IOException {
+        long sent = RangeFileWriter.write(file, SIZE, request("GET", "bytes=10-19"), response);
+
+        assertThat(sent).isEqualTo(10);
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+    }
+
+    @Test
+    @DisplayName("Should answer a suffix range with the last bytes of the file")
+    void shouldSendSuffixRange() throws IOException {
+        RangeFileWriter.write(file, SIZE, request("GET", "bytes=-5"), response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 95-99/100");
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 95, 100));
+    }
+
+    @Test
+    @DisplayName("Should answer a range past the end of the file with 416 and no body")
+    void shouldRejectUnsatisfiableRange() throws IOException {
+        long sent = RangeFileWriter.write(file, SIZE, request("GET", "bytes=100-"), response);
+
+        assertThat(sent).isZero();
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */100");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should send the whole file for a multi-range request")
+    void shouldSendWholeFileForMultipleRanges() throws IOException {
+        RangeFileWriter.write(file, SIZE, request("GET", "bytes=0-9,20-29"), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    @DisplayName("Should answer HEAD with the headers of GET and no body")
+    void shouldSendHeadersOnlyForHead() throws IOException {
+        long sent = RangeFileWriter.write(file, SIZE, request("HEAD", "bytes=10-19"), response);
+
+        assertThat(sent).isZero();
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should hand the range to the container when it supports sendfile")
+    void shouldUseSendfile() throws IOException {
+        MockHttpServletRequest request = request("GET", "bytes=10-19");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        long sent = RangeFileWriter.write(file, SIZE, request, response);
+
+        assertThat(sent).isEqualTo(10);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename"))
+                .isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(10L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(20L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private static MockHttpServletRequest request(String method, String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/preview");
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+}
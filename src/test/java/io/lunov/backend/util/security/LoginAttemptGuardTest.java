@@ -0,0 +1,45 @@
+package io.lunov.backend.util.security;
+
+import io.lunov.backend.model.exception.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginAttemptGuardTest {
+
+    private final LoginAttemptGuard guard =
+            new LoginAttemptGuard(100, Duration.ofMinutes(5), 3, Duration.ofMinutes(15), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Should remember misses until they are invalidated")
+    void shouldRememberMisses() {
+        guard.failed("ABC123", "client@mail.com");
+
+        assertThat(guard.isKnownMiss("ABC123", "client@mail.com")).isTrue();
+        assertThat(guard.isKnownMiss("ABC124", "client@mail.com")).isFalse();
+
+        guard.invalidateMisses();
+        assertThat(guard.isKnownMiss("ABC123", "client@mail.com")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should shed an email after too many failures regardless of case, until it succeeds")
+    void shouldShedRepeatedFailures() {
+        guard.failed("A", "client@mail.com");
+        guard.failed("B", "Client@Mail.com");
+        guard.checkAllowed("client@mail.com");
+        guard.failed("C", "client@mail.com");
+
+        assertThatThrownBy(() -> guard.checkAllowed("CLIENT@mail.com"))
+                .isInstanceOf(TooManyLoginAttemptsException.class);
+        guard.checkAllowed("other@mail.com");
+
+        guard.succeeded("client@mail.com");
+        guard.checkAllowed("client@mail.com");
+    }
+}
@@ -0,0 +1,70 @@
+package io.lunov.backend.util.storage;
+
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+import io.minio.messages.Bucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BucketRegistryTest {
+
+    @Mock
+    private MinioClient minioClient;
+
+    private BucketRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new BucketRegistry(minioClient);
+    }
+
+    @Test
+    @DisplayName("Should ask MinIO once per bucket and answer later checks from the registry")
+    void shouldRememberExistingBuckets() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+
+        assertThat(registry.exists("session")).isTrue();
+        assertThat(registry.exists("session")).isTrue();
+
+        verify(minioClient, times(1)).bucketExists(any(BucketExistsArgs.class));
+    }
+
+    @Test
+    @DisplayName("Should fall back to MinIO for removed and unknown buckets")
+    void shouldCheckRemovedBucketsAgain() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+        registry.registered("session");
+        registry.removed("session");
+
+        assertThat(registry.exists("session")).isFalse();
+        assertThat(registry.exists("session")).isFalse();
+
+        verify(minioClient, times(2)).bucketExists(any(BucketExistsArgs.class));
+    }
+
+    @Test
+    @DisplayName("Should replace known buckets with the listing on refresh")
+    void shouldRefreshFromListing() throws Exception {
+        Bucket listed = mock(Bucket.class);
+        when(listed.name()).thenReturn("listed");
+        when(minioClient.listBuckets()).thenReturn(List.of(listed));
+        registry.registered("gone");
+
+        registry.refresh();
+
+        assertThat(registry.exists("listed")).isTrue();
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+        assertThat(registry.exists("gone")).isFalse();
+    }
+}
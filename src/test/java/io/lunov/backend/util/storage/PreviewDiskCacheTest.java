@@ -0,0 +1,99 @@
+package io.lunov.backend.util.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PreviewDiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should download an object once and serve later requests from disk")
+    void shouldReuseCachedFiles() throws IOException {
+        PreviewDiskCache cache = new PreviewDiskCache(directory, DataSize.ofKilobytes(10), Duration.ZERO, meterRegistry);
+
+        PreviewDiskCache.CachedFile first = cache.get("bucket", "a.jpg", bytes(100));
+        PreviewDiskCache.CachedFile second = cache.get("bucket", "a.jpg", bytes(100));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(first.size()).isEqualTo(100);
+        assertThat(Files.size(first.path())).isEqualTo(100);
+        assertThat(downloads).hasValue(1);
+        assertThat(meterRegistry.get("preview.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used files once the size bound is exceeded")
+    void shouldEvictLeastRecentlyUsed() throws IOException, InterruptedException {
+        PreviewDiskCache cache = new PreviewDiskCache(directory, DataSize.ofBytes(250), Duration.ZERO, meterRegistry);
+
+        PreviewDiskCache.CachedFile a = cache.get("bucket", "a.jpg", bytes(100));
+        cache.get("bucket", "b.jpg", bytes(100));
+        cache.get("bucket", "a.jpg", bytes(100));
+        cache.get("bucket", "c.jpg", bytes(100));
+        Thread.sleep(5);
+        cache.deleteEvicted();
+
+        assertThat(a.path()).exists();
+        assertThat(meterRegistry.get("preview.cache.size").gauge().value()).isEqualTo(200);
+        cache.get("bucket", "b.jpg", bytes(100));
+        assertThat(downloads).hasValue(4);
+    }
+
+    @Test
+    @DisplayName("Should download again after invalidation and delete the old file after the grace period")
+    void shouldDropInvalidatedFiles() throws IOException, InterruptedException {
+        PreviewDiskCache cache = new PreviewDiskCache(directory, DataSize.ofKilobytes(10), Duration.ZERO, meterRegistry);
+
+        PreviewDiskCache.CachedFile first = cache.get("bucket", "a.jpg", bytes(100));
+        cache.invalidateBucket("bucket");
+        PreviewDiskCache.CachedFile second = cache.get("bucket", "a.jpg", bytes(100));
+        Thread.sleep(5);
+        cache.deleteEvicted();
+
+        assertThat(second.path()).isNotEqualTo(first.path()).exists();
+        assertThat(first.path()).doesNotExist();
+        assertThat(downloads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should not cache a download that an invalidation overlapped")
+    void shouldNotCacheDownloadOverlappingInvalidation() throws IOException, InterruptedException {
+        PreviewDiskCache cache = new PreviewDiskCache(directory, DataSize.ofKilobytes(10), Duration.ZERO, meterRegistry);
+
+        PreviewDiskCache.CachedFile stale = cache.get("bucket", "a.jpg", target -> {
+            bytes(100).load(target);
+            cache.invalidate("bucket", "a.jpg");
+        });
+        PreviewDiskCache.CachedFile fresh = cache.get("bucket", "a.jpg", bytes(100));
+        Thread.sleep(5);
+        cache.deleteEvicted();
+
+        assertThat(fresh.path()).isNotEqualTo(stale.path()).exists();
+        assertThat(stale.path()).doesNotExist();
+        assertThat(downloads).hasValue(2);
+        assertThat(meterRegistry.get("preview.cache.size").gauge().value()).isEqualTo(100);
+    }
+
+    private PreviewDiskCache.Loader bytes(int size) {
+        return target -> {
+            downloads.incrementAndGet();
+            Files.write(target, new byte[size]);
+        };
+    }
+}